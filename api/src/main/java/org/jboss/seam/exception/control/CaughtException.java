@@ -20,6 +20,10 @@ package org.jboss.seam.exception.control;
 /**
  * Payload for an exception to be handled.  This object is not immutable as small pieces of the state may be set by the
  * handler.
+ * <p/>
+ * The dispatcher may be configured to reuse a single instance for all handler invocations on a thread, in which case
+ * the instance, and the {@link ExceptionStack} it refers to, are only valid while the handler is invoked.  Handlers
+ * must not keep a reference to either after returning.
  *
  * @param <T> Exception type this event represents
  */
@@ -39,14 +43,15 @@ public class CaughtException<T extends Throwable>
       THROW
    }
 
-   private final ExceptionStack exceptionStack;
-   private final T exception;
+   private ExceptionStack exceptionStack;
+   private T exception;
    private boolean unmute;
    private ExceptionHandlingFlow flow;
    private Throwable throwNewException;
-   private final boolean breadthFirstTraversal;
-   private final boolean depthFirstTraversal;
-   private final boolean markedHandled;
+   private boolean breadthFirstTraversal;
+   private boolean depthFirstTraversal;
+   private boolean markedHandled;
+   private int occurrences;
 
    /**
     * Initial state constructor.
@@ -63,12 +68,28 @@ public class CaughtException<T extends Throwable>
          throw new IllegalArgumentException("null is not valid for exceptionStack");
       }
 
+      this.reset(exceptionStack, breadthFirstTraversal, handled);
+   }
+
+   /**
+    * Returns this event to its initial state, as if it had just been created with the given arguments.
+    *
+    * @param exceptionStack        Information about the current exception and cause chain.
+    * @param breadthFirstTraversal flag indicating the direction of the cause chain traversal
+    * @param handled               flag indicating the exception has already been handled by a previous handler
+    */
+   protected void reset(final ExceptionStack exceptionStack, final boolean breadthFirstTraversal,
+                        final boolean handled)
+   {
       this.exception = (T) exceptionStack.getCurrent();
       this.exceptionStack = exceptionStack;
       this.breadthFirstTraversal = breadthFirstTraversal;
       this.depthFirstTraversal = !breadthFirstTraversal;
       this.markedHandled = handled;
+      this.unmute = false;
+      this.throwNewException = null;
       this.flow = ExceptionHandlingFlow.MARK_HANDLED;
+      this.occurrences = 1;
    }
 
    public T getException()
@@ -170,4 +191,19 @@ public class CaughtException<T extends Throwable>
    {
       return throwNewException;
    }
+
+   /**
+    * Obtains the number of occurrences of the exception this event stands for.  This is one, unless the handler
+    * coalesces identical exceptions, see {@link Handles#coalesceWindow()}.  It then counts this exception and the
+    * identical ones not passed to the handler since its previous invocation.
+    */
+   public int getOccurrences()
+   {
+      return this.occurrences;
+   }
+
+   protected void setOccurrences(final int occurrences)
+   {
+      this.occurrences = occurrences;
+   }
 }
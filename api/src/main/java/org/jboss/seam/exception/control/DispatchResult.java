@@ -0,0 +1,63 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+/**
+ * Outcome of dispatching an exception to its handlers, see {@link ExceptionDispatcher}.  This class is immutable.
+ */
+public class DispatchResult
+{
+   private final boolean handled;
+   private final Throwable throwException;
+
+   /**
+    * Sole constructor.
+    *
+    * @param handled        flag indicating the exception has been handled by a handler
+    * @param throwException exception a handler requested to be re-thrown, null if none
+    */
+   public DispatchResult(final boolean handled, final Throwable throwException)
+   {
+      this.handled = handled;
+      this.throwException = throwException;
+   }
+
+   public boolean isHandled()
+   {
+      return this.handled;
+   }
+
+   /**
+    * Determines if a handler requested an exception to be re-thrown, either the original exception or a new one.
+    */
+   public boolean isRethrow()
+   {
+      return this.throwException != null;
+   }
+
+   /**
+    * Obtains the exception to be re-thrown, as requested by {@link CaughtException#rethrow()} or {@link
+    * CaughtException#rethrow(Throwable)}.
+    *
+    * @return exception to be re-thrown, null if no handler requested a re-throw
+    */
+   public Throwable getThrowException()
+   {
+      return this.throwException;
+   }
+}
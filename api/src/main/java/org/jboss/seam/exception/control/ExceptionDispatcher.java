@@ -0,0 +1,42 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+/**
+ * Direct entry point into the Catch system.  Dispatching an exception through this bean invokes the same handlers, in
+ * the same order, as firing an {@link ExceptionToCatch} event, but the container's observer resolution is skipped and
+ * an exception to be re-thrown is returned to the caller instead of being thrown.
+ * <p/>
+ * Typically only integrators will be using this bean, for example:
+ * <pre>
+ * &#064;Inject ExceptionDispatcher dispatcher;
+ * ...
+ * DispatchResult result = dispatcher.dispatch(new ExceptionToCatch(exception, RestRequestLiteral.INSTANCE));
+ * </pre>
+ */
+public interface ExceptionDispatcher
+{
+   /**
+    * Finds the correct exception handler(s) for the given event and invokes them.  The handled flag of the event is
+    * updated just like when the event is fired.
+    *
+    * @param exceptionToCatch exception and qualifiers to handle
+    * @return outcome of the handler invocations
+    */
+   DispatchResult dispatch(ExceptionToCatch exceptionToCatch);
+}
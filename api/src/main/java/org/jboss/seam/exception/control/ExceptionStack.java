@@ -18,22 +18,23 @@
 package org.jboss.seam.exception.control;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Information about the current exception and exception cause container.  This object is not immutable.
+ * <p/>
+ * The cause elements are held in an array, moving to another element and obtaining the cause elements or the
+ * remaining elements are constant time operations.  The collections returned are read only views, not copies.
  */
 public class ExceptionStack
 {
-   private boolean root;
-   private boolean last;
+   private Throwable[] elements;
+   private int size;
+   private List<Throwable> elementsView;
    private int index;
-   private Throwable next;
-   private Collection<Throwable> remaining;
-   private Collection<Throwable> elements;
-   private Throwable current;
 
    /**
     * Builds the stack from the given exception.
@@ -42,26 +43,7 @@ public class ExceptionStack
     */
    public ExceptionStack(final Throwable exception)
    {
-      Throwable e = exception;
-      this.elements = new ArrayList<Throwable>();
-
-      do
-      {
-         this.elements.add(e);
-         if (e instanceof SQLException)
-         {
-            SQLException sqlException = (SQLException) e;
-            while (sqlException.getNextException() != null)
-            {
-               sqlException = sqlException.getNextException();
-               this.elements.add(sqlException);
-            }
-         }
-      }
-      while ((e = e.getCause()) != null);
-
-      this.index = elements.size() - 1;
-      this.init();
+      this.reset(exception);
    }
 
    /**
@@ -78,33 +60,106 @@ public class ExceptionStack
       {
          throw new IllegalArgumentException("Null or empty collection of causeChainElements is not valid");
       }
-      this.elements = Collections.unmodifiableCollection(causeChainElements);
+      this.init(causeChainElements);
       this.index = currentElementIndex;
-      this.init();
    }
 
-   private void init()
+   private void init(Collection<Throwable> causeChainElements)
+   {
+      this.elements = causeChainElements.toArray(new Throwable[causeChainElements.size()]);
+      this.size = this.elements.length;
+      this.elementsView = null;
+   }
+
+   /**
+    * Rebuilds the stack from the given exception, as if it had just been created from it.  The element array is reused
+    * if the cause chain fits.
+    *
+    * @param exception Caught exception
+    */
+   protected void reset(final Throwable exception)
    {
-      this.root = this.index == this.elements.size() - 1;
-      this.next = this.index - 1 >= 0 ? (Throwable) this.elements.toArray()[this.index - 1] : null;
+      final int length = countCauseElements(exception);
 
-      if (this.index >= 0)
+      if (this.elements == null || this.elements.length < length)
       {
-         this.remaining = new ArrayList<Throwable>(this.elements).subList(0, this.index);
-         this.current = (Throwable) this.elements.toArray()[this.index];
+         this.elements = new Throwable[length];
       }
-      else
+      else if (length < this.size)
       {
-         this.remaining = Collections.emptyList();
-         this.current = null;
+         Arrays.fill(this.elements, length, this.size, null);
       }
 
-      this.last = this.remaining.isEmpty();
+      int i = 0;
+      Throwable e = exception;
+      do
+      {
+         this.elements[i++] = e;
+         if (e instanceof SQLException)
+         {
+            SQLException sqlException = (SQLException) e;
+            while ((sqlException = sqlException.getNextException()) != null)
+            {
+               this.elements[i++] = sqlException;
+            }
+         }
+      }
+      while ((e = e.getCause()) != null);
+
+      this.size = length;
+      this.elementsView = null;
+      this.index = length - 1;
+   }
+
+   /**
+    * Removes all elements, so the stack no longer refers to any exception.  The element array is kept for reuse.
+    */
+   protected void clear()
+   {
+      if (this.elements != null)
+      {
+         Arrays.fill(this.elements, 0, this.size, null);
+      }
+      this.size = 0;
+      this.elementsView = null;
+      this.index = -1;
+   }
+
+   private static int countCauseElements(final Throwable exception)
+   {
+      int length = 0;
+      Throwable e = exception;
+      do
+      {
+         length++;
+         if (e instanceof SQLException)
+         {
+            SQLException sqlException = (SQLException) e;
+            while ((sqlException = sqlException.getNextException()) != null)
+            {
+               length++;
+            }
+         }
+      }
+      while ((e = e.getCause()) != null);
+
+      return length;
+   }
+
+   private List<Throwable> getElementsView()
+   {
+      if (this.elementsView == null)
+      {
+         final List<Throwable> elementList = Arrays.asList(this.elements);
+         this.elementsView = Collections.unmodifiableList(this.size == this.elements.length ? elementList :
+               elementList.subList(0, this.size));
+      }
+      return this.elementsView;
    }
 
    public Collection<Throwable> getCauseElements()
    {
-      return Collections.unmodifiableCollection(this.elements);
+      return this.getElementsView();
    }
 
    public int getIndex()
@@ -114,43 +169,41 @@ public class ExceptionStack
 
    public boolean isLast()
    {
-      return this.last;
+      return this.index <= 0;
    }
 
    public Throwable getNext()
    {
-      return this.next;
+      return this.index - 1 >= 0 ? this.elements[this.index - 1] : null;
    }
 
    public Collection<Throwable> getRemaining()
    {
-      return Collections.unmodifiableCollection(this.remaining);
+      return this.index > 0 ? this.getElementsView().subList(0, this.index) : Collections.<Throwable>emptyList();
    }
 
    public boolean isRoot()
    {
-      return this.root;
+      return this.index == this.size - 1;
    }
 
    public Throwable getCurrent()
    {
-      return current;
+      return this.index >= 0 ? this.elements[this.index] : null;
    }
 
    public void setCauseElements(Collection<Throwable> elements)
    {
-      this.elements = Collections.unmodifiableCollection(elements);
-      this.init();
+      this.init(elements);
    }
 
    public void setIndex(int index)
    {
-      if (index >= this.elements.size())
+      if (index >= this.size)
       {
          throw new IllegalArgumentException("Index greater than elements.size()");
       }
       this.index = index;
-      this.init();
    }
 
    /**
@@ -41,9 +41,11 @@ public class ExceptionToCatch
     */
    public ExceptionToCatch(Throwable exception, Annotation... qualifiers)
    {
+      final Set<Annotation> qualifierSet = new HashSet<Annotation>();
+      Collections.addAll(qualifierSet, qualifiers);
+
       this.exception = exception;
-      this.qualifiers = new HashSet<Annotation>();
-      Collections.addAll(this.qualifiers, qualifiers);
+      this.qualifiers = Collections.unmodifiableSet(qualifierSet);
    }
 
    /**
@@ -74,6 +76,6 @@ public class ExceptionToCatch
 
    public Set<Annotation> getQualifiers()
    {
-      return Collections.unmodifiableSet(qualifiers);
+      return qualifiers;
    }
 }
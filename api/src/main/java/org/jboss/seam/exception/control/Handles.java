@@ -42,4 +42,30 @@ public @interface Handles
     * Precedence relative to handlers for the same type
     */
    public abstract int precedence() default Precedence.DEFAULT;
+
+   /**
+    * Invoke the handler asynchronously, after the synchronous handlers decided how the exception is handled.  The
+    * handler is passed a copy of the exception stack as it was when the handler would have been invoked, it can not
+    * influence the handling of the exception, calls controlling the flow are ignored.
+    */
+   public abstract boolean async() default false;
+
+   /**
+    * Maximum number of concurrent invocations of an asynchronous handler, zero for no limit.  Invocations beyond the
+    * limit wait for a running invocation to finish, without occupying a thread.  Ignored unless {@link #async()} is
+    * true.
+    */
+   public abstract int maxConcurrency() default 0;
+
+   /**
+    * Window, in milliseconds, over which identical exceptions are coalesced, zero to invoke the handler for every
+    * exception.  Exceptions are identical if their cause chains consist of the same classes and were thrown from the
+    * same place.  The handler is invoked for the first exception of a window only, and is told the number of
+    * exceptions it stands for through {@link CaughtException#getOccurrences()}.  Exceptions skipped while the window
+    * was open are reported with the next identical exception, or by a background thread once the window has closed.
+    * Skipped exceptions are not kept, so the background thread passes new exceptions of the same classes and throw
+    * site, without the original messages.  Meant for handlers with side effects only, such as logging, since the
+    * skipped exceptions are not influenced by the handler.
+    */
+   public abstract long coalesceWindow() default 0;
 }
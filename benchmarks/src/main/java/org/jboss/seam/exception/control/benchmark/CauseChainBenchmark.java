@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.seam.exception.control.DispatchResult;
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.ExceptionStack;
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dispatches an exception wrapped in a chain of runtime exceptions, handled at its root cause, and builds the
+ * exception stack of the chain on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CauseChainBenchmark
+{
+   @Param({ "1", "8", "32" })
+   private int depth;
+
+   private ExceptionDispatcher dispatcher;
+   private Throwable exception;
+
+   @Setup
+   public void createCauseChain(ContainerState container)
+   {
+      this.dispatcher = container.getDispatcher();
+
+      Throwable chain = new IllegalStateException();
+      for (int i = 1; i < this.depth; i++)
+      {
+         chain = new RuntimeException(chain);
+      }
+      this.exception = chain;
+   }
+
+   @Benchmark
+   public DispatchResult dispatch()
+   {
+      return this.dispatcher.dispatch(new ExceptionToCatch(this.exception));
+   }
+
+   @Benchmark
+   public ExceptionStack buildStack()
+   {
+      return new ExceptionStack(this.exception);
+   }
+}
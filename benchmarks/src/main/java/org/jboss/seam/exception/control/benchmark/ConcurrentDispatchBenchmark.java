@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.benchmark;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.jboss.seam.exception.control.HandlerMethod;
+import org.jboss.seam.exception.control.TraversalMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dispatches exceptions from 64 threads at once, all of them handled by the same handler, to expose contention on
+ * shared handler state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Threads(64)
+@Fork(1)
+public class ConcurrentDispatchBenchmark
+{
+   private BeanManager bm;
+   private HandlerMethod<?> handler;
+   private IllegalStateException exception;
+
+   @Setup
+   public void lookupHandler(ContainerState container)
+   {
+      this.bm = container.getBeanManager();
+      this.handler = container.getExtension().getHandlersForExceptionType(IllegalStateException.class, this.bm,
+            Collections.<Annotation>emptySet(), TraversalMode.DEPTH_FIRST).get(0);
+      this.exception = new IllegalStateException();
+   }
+
+   @Benchmark
+   public Bean<?> resolveHandlerBean()
+   {
+      return this.handler.getBean(this.bm);
+   }
+
+   @Benchmark
+   public boolean dispatch()
+   {
+      final ExceptionToCatch event = new ExceptionToCatch(this.exception);
+      this.bm.fireEvent(event);
+      return event.isHandled();
+   }
+}
@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.benchmark;
+
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+import org.jboss.weld.environment.se.Weld;
+import org.jboss.weld.environment.se.WeldContainer;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Weld SE container shared by all threads of a benchmark trial.  The container deploys the handlers of this module
+ * together with Seam Catch.
+ */
+@State(Scope.Benchmark)
+public class ContainerState
+{
+   private Weld weld;
+   private WeldContainer container;
+
+   @Setup(Level.Trial)
+   public void start()
+   {
+      this.weld = new Weld();
+      this.container = this.weld.initialize();
+   }
+
+   @TearDown(Level.Trial)
+   public void stop()
+   {
+      this.weld.shutdown();
+   }
+
+   public BeanManager getBeanManager()
+   {
+      return this.container.getBeanManager();
+   }
+
+   public CatchExtension getExtension()
+   {
+      return this.container.instance().select(CatchExtension.class).get();
+   }
+
+   public ExceptionDispatcher getDispatcher()
+   {
+      return this.container.instance().select(ExceptionDispatcher.class).get();
+   }
+}
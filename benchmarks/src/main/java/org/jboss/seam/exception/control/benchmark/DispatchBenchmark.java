@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.jboss.seam.exception.control.DispatchResult;
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dispatches an exception with a single handler, which ends the dispatch, and an exception without any handler.  The
+ * handled exception is dispatched both through {@link ExceptionDispatcher} and as a CDI event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DispatchBenchmark
+{
+   private BeanManager bm;
+   private ExceptionDispatcher dispatcher;
+   private IllegalStateException handledException;
+   private ArrayStoreException unhandledException;
+
+   @Setup
+   public void createExceptions(ContainerState container)
+   {
+      this.bm = container.getBeanManager();
+      this.dispatcher = container.getDispatcher();
+      this.handledException = new IllegalStateException();
+      this.unhandledException = new ArrayStoreException();
+   }
+
+   @Benchmark
+   public DispatchResult singleHandler()
+   {
+      return this.dispatcher.dispatch(new ExceptionToCatch(this.handledException));
+   }
+
+   @Benchmark
+   public boolean singleHandlerEvent()
+   {
+      final ExceptionToCatch event = new ExceptionToCatch(this.handledException);
+      this.bm.fireEvent(event);
+      return event.isHandled();
+   }
+
+   @Benchmark
+   public DispatchResult noHandler()
+   {
+      return this.dispatcher.dispatch(new ExceptionToCatch(this.unhandledException));
+   }
+}
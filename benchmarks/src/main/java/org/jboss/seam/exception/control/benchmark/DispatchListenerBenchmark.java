@@ -0,0 +1,124 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.benchmark;
+
+import java.lang.annotation.Annotation;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.seam.exception.control.DispatchListener;
+import org.jboss.seam.exception.control.DispatchOutcome;
+import org.jboss.seam.exception.control.DispatchResult;
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.jboss.seam.exception.control.HandlerMethod;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dispatches a handled and an unhandled exception without a {@link DispatchListener}, the default, and with a listener
+ * consuming every event.  The difference between the two is the cost of reporting a dispatch; without a listener the
+ * results should match {@link DispatchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DispatchListenerBenchmark
+{
+   @Param({ "false", "true" })
+   private boolean listening;
+
+   private CatchExtension extension;
+   private ExceptionDispatcher dispatcher;
+   private IllegalStateException handledException;
+   private ArrayStoreException unhandledException;
+
+   @Setup
+   public void installListener(ContainerState container)
+   {
+      this.extension = container.getExtension();
+      this.dispatcher = container.getDispatcher();
+      this.handledException = new IllegalStateException();
+      this.unhandledException = new ArrayStoreException();
+
+      if (this.listening)
+      {
+         this.extension.setDispatchListener(new CountingListener());
+      }
+   }
+
+   @TearDown
+   public void removeListener()
+   {
+      this.extension.setDispatchListener(null);
+   }
+
+   @Benchmark
+   public DispatchResult singleHandler()
+   {
+      return this.dispatcher.dispatch(new ExceptionToCatch(this.handledException));
+   }
+
+   @Benchmark
+   public DispatchResult noHandler()
+   {
+      return this.dispatcher.dispatch(new ExceptionToCatch(this.unhandledException));
+   }
+
+   /**
+    * Listener counting every event and summing the reported durations, so that reporting cannot be optimized away.
+    * Benchmarks run on a single thread, so the fields are not synchronized.
+    */
+   private static final class CountingListener implements DispatchListener
+   {
+      private long eventCount;
+      private long totalNanos;
+
+      public void dispatchStarted(Throwable exception, Set<Annotation> qualifiers)
+      {
+         this.eventCount++;
+      }
+
+      public void dispatchEnded(Throwable exception, Set<Annotation> qualifiers, int causeDepth,
+                                DispatchOutcome outcome, long durationNanos)
+      {
+         this.eventCount++;
+         this.totalNanos += durationNanos;
+      }
+
+      public void handlerInvoked(HandlerMethod<?> handler, Throwable exception, long durationNanos, boolean failed)
+      {
+         this.eventCount++;
+         this.totalNanos += durationNanos;
+      }
+   }
+}
@@ -0,0 +1,63 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.seam.exception.control.DispatchResult;
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dispatches an exception reaching the twenty handlers of {@link HierarchyHandlers}, spread over five levels of its
+ * class hierarchy and both traversal modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HandlerHierarchyBenchmark
+{
+   private ExceptionDispatcher dispatcher;
+   private NumberFormatException exception;
+
+   @Setup
+   public void createException(ContainerState container)
+   {
+      this.dispatcher = container.getDispatcher();
+      this.exception = new NumberFormatException();
+   }
+
+   @Benchmark
+   public DispatchResult dispatch()
+   {
+      return this.dispatcher.dispatch(new ExceptionToCatch(this.exception, Hierarchy.Literal.INSTANCE));
+   }
+}
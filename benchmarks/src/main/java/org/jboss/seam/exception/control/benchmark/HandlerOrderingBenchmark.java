@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.benchmark;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.seam.exception.control.ExceptionHandlerComparator;
+import org.jboss.seam.exception.control.HandlerMethod;
+import org.jboss.seam.exception.control.TraversalMode;
+import org.jboss.seam.solder.reflection.HierarchyDiscovery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares ordering a large handler list by precomputed sort keys with the previous ordering, which rebuilt type
+ * closures on every comparison inside a {@link TreeSet}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HandlerOrderingBenchmark
+{
+   private static final Class<?>[] EXCEPTION_TYPES = {
+         Throwable.class, Exception.class, RuntimeException.class, IllegalArgumentException.class,
+         NumberFormatException.class
+   };
+
+   @Param({ "100", "500" })
+   private int handlerCount;
+
+   private HandlerMethod[] handlers;
+
+   @Setup
+   @SuppressWarnings("unchecked")
+   public void createHandlers()
+   {
+      final Random random = new Random(42);
+      this.handlers = new HandlerMethod[this.handlerCount];
+
+      for (int i = 0; i < this.handlerCount; i++)
+      {
+         final Class<? extends Throwable> type =
+               (Class<? extends Throwable>) EXCEPTION_TYPES[random.nextInt(EXCEPTION_TYPES.length)];
+         final TraversalMode mode = random.nextBoolean() ? TraversalMode.DEPTH_FIRST : TraversalMode.BREADTH_FIRST;
+         this.handlers[i] = new SyntheticHandlerMethod(type, mode, random.nextInt(201) - 100, i);
+      }
+   }
+
+   @Benchmark
+   public HandlerMethod[] sortKeys()
+   {
+      final HandlerMethod[] sorted = this.handlers.clone();
+      Arrays.sort(sorted, new ExceptionHandlerComparator());
+      return sorted;
+   }
+
+   @Benchmark
+   public Set<HandlerMethod> hierarchyClosures()
+   {
+      final Set<HandlerMethod> sorted = new TreeSet<HandlerMethod>(new ClosureComparator());
+      sorted.addAll(Arrays.asList(this.handlers));
+      return sorted;
+   }
+
+   /**
+    * The ordering used before sort keys were introduced.
+    */
+   @SuppressWarnings("unchecked")
+   private static final class ClosureComparator implements Comparator<HandlerMethod>
+   {
+      public int compare(HandlerMethod lhs, HandlerMethod rhs)
+      {
+         if (lhs.equals(rhs))
+         {
+            return 0;
+         }
+
+         if (lhs.getTraversalMode() == rhs.getTraversalMode())
+         {
+            if (lhs.getExceptionType().equals(rhs.getExceptionType()))
+            {
+               final int returnValue = lhs.getTraversalMode() == TraversalMode.DEPTH_FIRST
+                     ? lhs.getPrecedence() - rhs.getPrecedence()
+                     : rhs.getPrecedence() - lhs.getPrecedence();
+               return returnValue == 0 ? -1 : returnValue;
+            }
+
+            final Set<Type> lhsTypeClosure = new HierarchyDiscovery(lhs.getExceptionType()).getTypeClosure();
+            if (lhsTypeClosure.contains(rhs.getExceptionType()))
+            {
+               final int indexOfLhsType = new ArrayList(lhsTypeClosure).indexOf(lhs.getExceptionType());
+               final int indexOfRhsType = new ArrayList(lhsTypeClosure).indexOf(rhs.getExceptionType());
+
+               if (indexOfLhsType > indexOfRhsType)
+               {
+                  return 1;
+               }
+            }
+            return -1;
+         }
+         return lhs.getTraversalMode() == TraversalMode.BREADTH_FIRST ? -1 : 1;
+      }
+   }
+}
@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.benchmark;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jboss.seam.exception.control.HandlerMethod;
+import org.jboss.seam.exception.control.HandlerRegistry;
+import org.jboss.seam.exception.control.TraversalMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Freezes a handler registry.  Nearly everything allocated by freezing is retained by the registry, so run with the
+ * gc profiler, {@code -prof gc}, and divide {@code gc.alloc.rate.norm} by the handler count for the memory the
+ * registry costs per handler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HandlerRegistryBenchmark
+{
+   private static final Class<?>[] EXCEPTION_TYPES = {
+         Throwable.class, Exception.class, RuntimeException.class, IllegalArgumentException.class,
+         NumberFormatException.class, IllegalStateException.class, UnsupportedOperationException.class,
+         NullPointerException.class, IOException.class, SQLException.class, TimeoutException.class, Error.class
+   };
+
+   @Param({ "100", "1000" })
+   private int handlerCount;
+
+   private Map<Type, Collection<HandlerMethod>> handlers;
+
+   @Setup
+   @SuppressWarnings("unchecked")
+   public void createHandlers()
+   {
+      this.handlers = new HashMap<Type, Collection<HandlerMethod>>();
+
+      for (int i = 0; i < this.handlerCount; i++)
+      {
+         final Class<? extends Throwable> type =
+               (Class<? extends Throwable>) EXCEPTION_TYPES[i % EXCEPTION_TYPES.length];
+
+         if (!this.handlers.containsKey(type))
+         {
+            this.handlers.put(type, new HashSet<HandlerMethod>());
+         }
+         this.handlers.get(type).add(new SyntheticHandlerMethod(type, TraversalMode.DEPTH_FIRST, i, i));
+      }
+   }
+
+   @Benchmark
+   public HandlerRegistry freeze()
+   {
+      return new HandlerRegistry(this.handlers);
+   }
+}
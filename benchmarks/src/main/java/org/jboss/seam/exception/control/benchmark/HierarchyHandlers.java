@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.benchmark;
+
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.Handles;
+import org.jboss.seam.exception.control.HandlesExceptions;
+import org.jboss.seam.exception.control.TraversalMode;
+
+/**
+ * Two handlers per traversal mode for every type from {@link NumberFormatException} up to {@link Throwable}, none of
+ * them ending the dispatch, so all twenty are invoked for a number format exception.
+ */
+@HandlesExceptions
+public class HierarchyHandlers
+{
+   public void throwableBreadthFirst(@Handles(during = TraversalMode.BREADTH_FIRST) @Hierarchy
+                                     CaughtException<Throwable> event)
+   {
+   }
+
+   public void throwableBreadthFirstLate(@Handles(during = TraversalMode.BREADTH_FIRST, precedence = -10) @Hierarchy
+                                         CaughtException<Throwable> event)
+   {
+   }
+
+   public void throwable(@Handles @Hierarchy CaughtException<Throwable> event)
+   {
+   }
+
+   public void throwableEarly(@Handles(precedence = 10) @Hierarchy CaughtException<Throwable> event)
+   {
+   }
+
+   public void exceptionBreadthFirst(@Handles(during = TraversalMode.BREADTH_FIRST) @Hierarchy
+                                     CaughtException<Exception> event)
+   {
+   }
+
+   public void exceptionBreadthFirstLate(@Handles(during = TraversalMode.BREADTH_FIRST, precedence = -10) @Hierarchy
+                                         CaughtException<Exception> event)
+   {
+   }
+
+   public void exception(@Handles @Hierarchy CaughtException<Exception> event)
+   {
+   }
+
+   public void exceptionEarly(@Handles(precedence = 10) @Hierarchy CaughtException<Exception> event)
+   {
+   }
+
+   public void runtimeBreadthFirst(@Handles(during = TraversalMode.BREADTH_FIRST) @Hierarchy
+                                   CaughtException<RuntimeException> event)
+   {
+   }
+
+   public void runtimeBreadthFirstLate(@Handles(during = TraversalMode.BREADTH_FIRST, precedence = -10) @Hierarchy
+                                       CaughtException<RuntimeException> event)
+   {
+   }
+
+   public void runtime(@Handles @Hierarchy CaughtException<RuntimeException> event)
+   {
+   }
+
+   public void runtimeEarly(@Handles(precedence = 10) @Hierarchy CaughtException<RuntimeException> event)
+   {
+   }
+
+   public void illegalArgumentBreadthFirst(@Handles(during = TraversalMode.BREADTH_FIRST) @Hierarchy
+                                           CaughtException<IllegalArgumentException> event)
+   {
+   }
+
+   public void illegalArgumentBreadthFirstLate(@Handles(during = TraversalMode.BREADTH_FIRST, precedence = -10)
+                                               @Hierarchy CaughtException<IllegalArgumentException> event)
+   {
+   }
+
+   public void illegalArgument(@Handles @Hierarchy CaughtException<IllegalArgumentException> event)
+   {
+   }
+
+   public void illegalArgumentEarly(@Handles(precedence = 10) @Hierarchy
+                                    CaughtException<IllegalArgumentException> event)
+   {
+   }
+
+   public void numberFormatBreadthFirst(@Handles(during = TraversalMode.BREADTH_FIRST) @Hierarchy
+                                        CaughtException<NumberFormatException> event)
+   {
+   }
+
+   public void numberFormatBreadthFirstLate(@Handles(during = TraversalMode.BREADTH_FIRST, precedence = -10)
+                                            @Hierarchy CaughtException<NumberFormatException> event)
+   {
+   }
+
+   public void numberFormat(@Handles @Hierarchy CaughtException<NumberFormatException> event)
+   {
+   }
+
+   public void numberFormatEarly(@Handles(precedence = 10) @Hierarchy CaughtException<NumberFormatException> event)
+   {
+   }
+}
@@ -0,0 +1,65 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.benchmark;
+
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.Handles;
+import org.jboss.seam.exception.control.HandlesExceptions;
+
+/**
+ * Handlers of {@link QualifiedDispatchBenchmark}, one per {@link Tier} value, all for the same exception type.
+ */
+@HandlesExceptions
+public class QualifiedHandlers
+{
+   public void tier0(@Handles @Tier(0) CaughtException<UnsupportedOperationException> event)
+   {
+   }
+
+   public void tier1(@Handles @Tier(1) CaughtException<UnsupportedOperationException> event)
+   {
+   }
+
+   public void tier2(@Handles @Tier(2) CaughtException<UnsupportedOperationException> event)
+   {
+   }
+
+   public void tier3(@Handles @Tier(3) CaughtException<UnsupportedOperationException> event)
+   {
+   }
+
+   public void tier4(@Handles @Tier(4) CaughtException<UnsupportedOperationException> event)
+   {
+   }
+
+   public void tier5(@Handles @Tier(5) CaughtException<UnsupportedOperationException> event)
+   {
+   }
+
+   public void tier6(@Handles @Tier(6) CaughtException<UnsupportedOperationException> event)
+   {
+   }
+
+   public void tier7(@Handles @Tier(7) CaughtException<UnsupportedOperationException> event)
+   {
+   }
+
+   public void tier2Hierarchy(@Handles @Tier(2) @Hierarchy CaughtException<UnsupportedOperationException> event)
+   {
+   }
+}
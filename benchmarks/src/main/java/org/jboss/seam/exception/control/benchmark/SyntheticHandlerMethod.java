@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.benchmark;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.enterprise.inject.spi.AnnotatedParameter;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.ExceptionHandlerComparator;
+import org.jboss.seam.exception.control.ExceptionTypeIndex;
+import org.jboss.seam.exception.control.HandlerMethod;
+import org.jboss.seam.exception.control.QualifierIndex;
+import org.jboss.seam.exception.control.TraversalMode;
+import org.jboss.seam.solder.literal.AnyLiteral;
+
+/**
+ * Handler method without a backing bean, used to benchmark handler bookkeeping without a container.  Invoking it is
+ * not supported.
+ */
+public class SyntheticHandlerMethod implements HandlerMethod<Throwable>
+{
+   private final Class<? extends Throwable> exceptionType;
+   private final TraversalMode traversalMode;
+   private final int precedence;
+   private final long sortKey;
+   private final int ordinal;
+
+   public SyntheticHandlerMethod(Class<? extends Throwable> exceptionType, TraversalMode traversalMode,
+                                 int precedence, int ordinal)
+   {
+      this.ordinal = ordinal;
+      this.exceptionType = exceptionType;
+      this.traversalMode = traversalMode;
+      this.precedence = precedence;
+      this.sortKey = ExceptionHandlerComparator.createSortKey(traversalMode,
+            ExceptionTypeIndex.computeDepth(exceptionType), precedence);
+   }
+
+   public Class<?> getBeanClass()
+   {
+      return SyntheticHandlerMethod.class;
+   }
+
+   public Bean<?> getBean(BeanManager bm)
+   {
+      throw new UnsupportedOperationException();
+   }
+
+   public Set<Annotation> getQualifiers()
+   {
+      return Collections.<Annotation>singleton(AnyLiteral.INSTANCE);
+   }
+
+   public long getQualifierMask()
+   {
+      return QualifierIndex.ANY_MASK;
+   }
+
+   public int getOrdinal()
+   {
+      return this.ordinal;
+   }
+
+   public Type getExceptionType()
+   {
+      return this.exceptionType;
+   }
+
+   public void notify(CaughtException<Throwable> event, BeanManager bm)
+   {
+      throw new UnsupportedOperationException();
+   }
+
+   public void prepare(BeanManager bm)
+   {
+   }
+
+   public TraversalMode getTraversalMode()
+   {
+      return this.traversalMode;
+   }
+
+   public int getPrecedence()
+   {
+      return this.precedence;
+   }
+
+   public boolean isAsync()
+   {
+      return false;
+   }
+
+   public int getMaxConcurrency()
+   {
+      return 0;
+   }
+
+   public long getCoalesceWindow()
+   {
+      return 0;
+   }
+
+   public Method getJavaMethod()
+   {
+      return null;
+   }
+
+   public AnnotatedParameter<?> getHandlerParameter()
+   {
+      return null;
+   }
+
+   public long getSortKey()
+   {
+      return this.sortKey;
+   }
+}
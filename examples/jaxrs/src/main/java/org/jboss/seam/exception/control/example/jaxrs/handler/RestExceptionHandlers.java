@@ -34,15 +34,18 @@ import org.jboss.seam.rest.exceptions.ErrorMessageWrapper;
 public class RestExceptionHandlers
 {
    /**
-    * An example that demonstrates logging all exceptions to stdout that are caught during a REST resource request
+    * An example that demonstrates logging all exceptions to stdout that are caught during a REST resource request.
+    * Identical exceptions are logged once per second, with the number of occurrences.
     */
    public void logException(
-      @Handles(during = TraversalMode.BREADTH_FIRST) @RestRequest final CaughtException<Throwable> event)
+      @Handles(during = TraversalMode.BREADTH_FIRST, coalesceWindow = 1000) @RestRequest
+      final CaughtException<Throwable> event)
    {
       ExceptionStack c = event.getExceptionStack();
       System.out.println(
          "Caught exception (" + (c.getIndex() + 1) + " in stack of " + c.getCauseElements().size() + ") => " +
-         event.getException().getClass().getSimpleName() + "(\"" + event.getException().getMessage() + "\") ");
+         event.getException().getClass().getSimpleName() + "(\"" + event.getException().getMessage() + "\") x" +
+         event.getOccurrences());
    }
 
    /**
@@ -0,0 +1,453 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Executor of asynchronous handlers, see {@link Handles#async()}.  Handlers are run by a fixed number of daemon threads
+ * from a bounded queue.  If the queue is full, the {@link RejectionPolicy} decides what happens to the handler.  This
+ * class is thread safe.
+ * <p/>
+ * Asynchronous handlers run outside the request of the exception, so they should be application scoped or dependent.
+ * An exception thrown by an asynchronous handler is logged and counted, see {@link #getFailedCount()}.
+ * <p/>
+ * Handlers with a {@link Handles#maxConcurrency()} pass a semaphore of their own before reaching the queue.
+ * Invocations beyond the limit wait in a backlog of the handler, holding no thread, and are queued as running
+ * invocations finish.  The backlog of each handler is bounded by the queue capacity, the rejection policy applies if
+ * it is full.
+ */
+public class AsyncHandlerExecutor
+{
+   private static final Logger log = Logger.getLogger(AsyncHandlerExecutor.class);
+
+   /**
+    * Treatment of handlers submitted while the queue is full.
+    */
+   public enum RejectionPolicy
+   {
+      /**
+       * The handler is not invoked.
+       */
+      DISCARD,
+      /**
+       * The oldest queued handler is not invoked, the submitted handler is queued instead.
+       */
+      DISCARD_OLDEST,
+      /**
+       * The handler is invoked synchronously by the thread which dispatched the exception.  A handler with a {@link
+       * Handles#maxConcurrency()} whose backlog is full is discarded instead, as running it would either exceed its
+       * limit or block the dispatching thread until a running invocation finishes.
+       */
+      CALLER_RUNS
+   }
+
+   private final ThreadPoolExecutor executor;
+   private final int queueCapacity;
+   private final RejectionPolicy rejectionPolicy;
+   private final AtomicLong submittedCount;
+   private final AtomicLong completedCount;
+   private final AtomicLong failedCount;
+   private final AtomicLong rejectedCount;
+   private final ConcurrentMap<Integer, HandlerGate> gates;
+
+   /**
+    * Sole constructor.
+    *
+    * @param threads         number of threads invoking handlers
+    * @param queueCapacity   maximum number of handlers waiting for a thread
+    * @param rejectionPolicy treatment of handlers submitted while the queue is full
+    * @throws IllegalArgumentException if threads or queueCapacity is less than one, or rejectionPolicy is null
+    */
+   public AsyncHandlerExecutor(final int threads, final int queueCapacity, final RejectionPolicy rejectionPolicy)
+   {
+      if (threads < 1 || queueCapacity < 1 || rejectionPolicy == null)
+      {
+         throw new IllegalArgumentException(String.format("Invalid asynchronous handler executor: %d threads, "
+               + "queue capacity %d, rejection policy %s", threads, queueCapacity, rejectionPolicy));
+      }
+
+      this.queueCapacity = queueCapacity;
+      this.rejectionPolicy = rejectionPolicy;
+      this.submittedCount = new AtomicLong();
+      this.completedCount = new AtomicLong();
+      this.failedCount = new AtomicLong();
+      this.rejectedCount = new AtomicLong();
+      this.gates = new ConcurrentHashMap<Integer, HandlerGate>();
+      this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(queueCapacity), new HandlerThreadFactory(), new RejectionHandler());
+   }
+
+   /**
+    * Submits a handler invocation.
+    *
+    * @param handler handler to invoke
+    * @param event   event to pass to the handler, not shared with any other handler
+    * @param bm      active BeanManager
+    */
+   public void submit(final HandlerMethod handler, final CaughtException<?> event, final BeanManager bm)
+   {
+      this.submit(handler, event, bm, null);
+   }
+
+   /**
+    * Submits a handler invocation, reporting it to the given listener once it is done.
+    *
+    * @param handler  handler to invoke
+    * @param event    event to pass to the handler, not shared with any other handler
+    * @param bm       active BeanManager
+    * @param listener listener to report the invocation to, may be null
+    */
+   public void submit(final HandlerMethod handler, final CaughtException<?> event, final BeanManager bm,
+                      final DispatchListener listener)
+   {
+      this.submittedCount.incrementAndGet();
+
+      final HandlerGate gate = this.getGate(handler);
+      final HandlerTask task = new HandlerTask(handler, event, bm, gate, listener);
+
+      if (gate == null)
+      {
+         this.executor.execute(task);
+      }
+      else
+      {
+         gate.submit(task);
+      }
+   }
+
+   private HandlerGate getGate(HandlerMethod handler)
+   {
+      if (handler.getMaxConcurrency() <= 0)
+      {
+         return null;
+      }
+
+      final Integer ordinal = handler.getOrdinal();
+      final HandlerGate gate = this.gates.get(ordinal);
+
+      if (gate != null)
+      {
+         return gate;
+      }
+
+      final HandlerGate newGate = new HandlerGate(handler.getMaxConcurrency());
+      final HandlerGate existingGate = this.gates.putIfAbsent(ordinal, newGate);
+
+      return existingGate != null ? existingGate : newGate;
+   }
+
+   /**
+    * Stops accepting handlers.  Queued handlers are still invoked.
+    */
+   public void shutdown()
+   {
+      this.executor.shutdown();
+   }
+
+   /**
+    * Obtains the number of submitted handler invocations, including rejected ones.
+    */
+   public long getSubmittedCount()
+   {
+      return this.submittedCount.get();
+   }
+
+   /**
+    * Obtains the number of handler invocations which returned normally.
+    */
+   public long getCompletedCount()
+   {
+      return this.completedCount.get();
+   }
+
+   /**
+    * Obtains the number of handler invocations which threw an exception.
+    */
+   public long getFailedCount()
+   {
+      return this.failedCount.get();
+   }
+
+   /**
+    * Obtains the number of times a handler was submitted while the queue was full.
+    */
+   public long getRejectedCount()
+   {
+      return this.rejectedCount.get();
+   }
+
+   /**
+    * Obtains the number of handlers waiting for a thread.
+    */
+   public int getQueueDepth()
+   {
+      return this.executor.getQueue().size();
+   }
+
+   /**
+    * Obtains the number of invocations waiting for a handler below its concurrency limit, see
+    * {@link Handles#maxConcurrency()}.
+    */
+   public int getWaitingCount()
+   {
+      int waitingCount = 0;
+      for (HandlerGate gate : this.gates.values())
+      {
+         waitingCount += gate.waitingCount.get();
+      }
+      return waitingCount;
+   }
+
+   public int getQueueCapacity()
+   {
+      return this.queueCapacity;
+   }
+
+   public RejectionPolicy getRejectionPolicy()
+   {
+      return this.rejectionPolicy;
+   }
+
+   /**
+    * Obtains the number of threads currently invoking a handler.
+    */
+   public int getActiveCount()
+   {
+      return this.executor.getActiveCount();
+   }
+
+   /**
+    * Invocation of a single asynchronous handler.
+    */
+   @SuppressWarnings("unchecked")
+   private final class HandlerTask implements Runnable
+   {
+      private final HandlerMethod handler;
+      private final CaughtException event;
+      private final BeanManager bm;
+      private final HandlerGate gate;
+      private final DispatchListener listener;
+
+      /**
+       * Set if the executor rejected the task, only read by the thread which submitted it.
+       */
+      private boolean discarded;
+
+      HandlerTask(HandlerMethod handler, CaughtException<?> event, BeanManager bm, HandlerGate gate,
+                  DispatchListener listener)
+      {
+         this.handler = handler;
+         this.event = event;
+         this.bm = bm;
+         this.gate = gate;
+         this.listener = listener;
+      }
+
+      public void run()
+      {
+         final long start = this.listener != null ? System.nanoTime() : 0;
+         boolean completed = false;
+         try
+         {
+            this.handler.notify(this.event, this.bm);
+            completed = true;
+            completedCount.incrementAndGet();
+         }
+         catch (RuntimeException e)
+         {
+            log.error("Asynchronous handler failed handling " + this.event.getException().getClass().getName() + ": "
+                  + this.handler, e);
+            failedCount.incrementAndGet();
+         }
+         catch (Error e)
+         {
+            failedCount.incrementAndGet();
+            throw e;
+         }
+         finally
+         {
+            if (this.listener != null)
+            {
+               this.listener.handlerInvoked(this.handler, this.event.getException(), System.nanoTime() - start,
+                     !completed);
+            }
+            if (this.gate != null)
+            {
+               this.gate.release();
+            }
+         }
+      }
+
+      /**
+       * Gives up the permit of a task the executor did not accept.  Waiting invocations of the handler are queued by
+       * the next submission or finished invocation, rather than from within the rejection.
+       */
+      void discard()
+      {
+         this.discarded = true;
+         if (this.gate != null)
+         {
+            this.gate.permits.release();
+         }
+      }
+   }
+
+   /**
+    * Concurrency limit of a single handler.
+    */
+   private final class HandlerGate
+   {
+      private final Semaphore permits;
+      private final ConcurrentLinkedQueue<HandlerTask> waiting;
+      private final AtomicInteger waitingCount;
+
+      HandlerGate(int maxConcurrency)
+      {
+         this.permits = new Semaphore(maxConcurrency);
+         this.waiting = new ConcurrentLinkedQueue<HandlerTask>();
+         this.waitingCount = new AtomicInteger();
+      }
+
+      void submit(HandlerTask task)
+      {
+         if (this.permits.tryAcquire())
+         {
+            executor.execute(task);
+            return;
+         }
+
+         if (this.waitingCount.incrementAndGet() > queueCapacity)
+         {
+            this.waitingCount.decrementAndGet();
+            rejectedCount.incrementAndGet();
+
+            switch (rejectionPolicy)
+            {
+               case DISCARD_OLDEST:
+                  if (this.waiting.poll() == null)
+                  {
+                     this.waitingCount.incrementAndGet();
+                  }
+                  break;
+               default:
+                  // CALLER_RUNS discards as well, see RejectionPolicy.CALLER_RUNS
+                  return;
+            }
+         }
+
+         this.waiting.add(task);
+         // A running invocation may have finished before the task was added
+         this.drain();
+      }
+
+      void release()
+      {
+         this.permits.release();
+         this.drain();
+      }
+
+      /**
+       * Queues waiting invocations while permits are available.  Draining stops at the first invocation the executor
+       * rejects, so a full queue costs the backlog one invocation rather than all of them; the rest is queued by the
+       * next submission or finished invocation.
+       */
+      private void drain()
+      {
+         while (!this.waiting.isEmpty() && this.permits.tryAcquire())
+         {
+            final HandlerTask next = this.waiting.poll();
+            if (next == null)
+            {
+               this.permits.release();
+            }
+            else
+            {
+               this.waitingCount.decrementAndGet();
+               executor.execute(next);
+               if (next.discarded)
+               {
+                  return;
+               }
+            }
+         }
+      }
+   }
+
+   private final class RejectionHandler implements RejectedExecutionHandler
+   {
+      public void rejectedExecution(Runnable task, ThreadPoolExecutor threadPoolExecutor)
+      {
+         rejectedCount.incrementAndGet();
+
+         if (threadPoolExecutor.isShutdown())
+         {
+            ((HandlerTask) task).discard();
+            return;
+         }
+
+         switch (rejectionPolicy)
+         {
+            case DISCARD_OLDEST:
+               final HandlerTask oldest = (HandlerTask) threadPoolExecutor.getQueue().poll();
+               if (oldest != null)
+               {
+                  oldest.discard();
+               }
+               threadPoolExecutor.execute(task);
+               break;
+            case CALLER_RUNS:
+               task.run();
+               break;
+            default:
+               ((HandlerTask) task).discard();
+               break;
+         }
+      }
+   }
+
+   private static final class HandlerThreadFactory implements ThreadFactory
+   {
+      private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+      private final int poolNumber = POOL_NUMBER.incrementAndGet();
+      private final AtomicInteger threadNumber = new AtomicInteger();
+
+      public Thread newThread(Runnable task)
+      {
+         final Thread thread = new Thread(task, String.format("seam-catch-async-%d-%d", this.poolNumber,
+               this.threadNumber.incrementAndGet()));
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
+}
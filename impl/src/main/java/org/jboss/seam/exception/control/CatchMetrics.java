@@ -0,0 +1,275 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jboss.seam.exception.control.CaughtException.ExceptionHandlingFlow;
+
+/**
+ * Counters and latencies of the dispatcher, per dispatched exception and per handler.  Recording never locks or
+ * allocates, except for the {@link HandlerMetrics} of a handler, which are created on its first invocation.  This class
+ * is thread safe.
+ * <p/>
+ * Asynchronous handlers are not covered, their invocations are counted by the {@link AsyncHandlerExecutor}.
+ */
+public final class CatchMetrics
+{
+   /**
+    * Number of exception types counted, dispatches of further types only count towards the totals.
+    */
+   public static final int MAX_EXCEPTION_TYPES = 256;
+
+   private final HandlerMethod<?>[] handlers;
+   private final AtomicReferenceArray<HandlerMetrics> handlerMetrics;
+   private final AtomicLong dispatchCount;
+   private final AtomicLong handlerInvocationCount;
+   private final AtomicLong causeElementCount;
+   private final AtomicLong maxCauseDepth;
+   private final LatencyHistogram dispatchLatency;
+   private final ConcurrentMap<Class<?>, AtomicLong> exceptionTypeCounts;
+
+   /**
+    * Sole constructor.
+    *
+    * @param handlers all handlers
+    */
+   public CatchMetrics(final Collection<HandlerMethod> handlers)
+   {
+      int maxOrdinal = -1;
+      for (HandlerMethod<?> handler : handlers)
+      {
+         maxOrdinal = Math.max(maxOrdinal, handler.getOrdinal());
+      }
+
+      this.handlers = new HandlerMethod<?>[maxOrdinal + 1];
+      for (HandlerMethod<?> handler : handlers)
+      {
+         this.handlers[handler.getOrdinal()] = handler;
+      }
+
+      this.handlerMetrics = new AtomicReferenceArray<HandlerMetrics>(this.handlers.length);
+      this.dispatchCount = new AtomicLong();
+      this.handlerInvocationCount = new AtomicLong();
+      this.causeElementCount = new AtomicLong();
+      this.maxCauseDepth = new AtomicLong();
+      this.dispatchLatency = new LatencyHistogram();
+      this.exceptionTypeCounts = new ConcurrentHashMap<Class<?>, AtomicLong>();
+   }
+
+   /**
+    * Records a handler invocation.
+    *
+    * @param handler invoked handler
+    * @param nanos   duration of the invocation
+    * @param flow    flow requested by the handler, null if it threw an exception
+    */
+   void recordInvocation(final HandlerMethod<?> handler, final long nanos, final ExceptionHandlingFlow flow)
+   {
+      final HandlerMetrics metrics = this.getHandlerMetrics(handler);
+
+      this.handlerInvocationCount.incrementAndGet();
+      if (metrics != null)
+      {
+         metrics.record(nanos, flow);
+      }
+   }
+
+   /**
+    * Records a dispatched exception.
+    *
+    * @param exceptionType type of the dispatched exception
+    * @param causeDepth    number of elements of the exception stack
+    * @param nanos         duration of the dispatch
+    */
+   void recordDispatch(final Class<?> exceptionType, final int causeDepth, final long nanos)
+   {
+      this.dispatchCount.incrementAndGet();
+      this.countExceptionType(exceptionType);
+      this.causeElementCount.addAndGet(causeDepth);
+      this.dispatchLatency.record(nanos);
+
+      long currentMax = this.maxCauseDepth.get();
+      while (causeDepth > currentMax && !this.maxCauseDepth.compareAndSet(currentMax, causeDepth))
+      {
+         currentMax = this.maxCauseDepth.get();
+      }
+   }
+
+   private void countExceptionType(final Class<?> exceptionType)
+   {
+      final AtomicLong count = this.exceptionTypeCounts.get(exceptionType);
+
+      if (count != null)
+      {
+         count.incrementAndGet();
+      }
+      else if (this.exceptionTypeCounts.size() < MAX_EXCEPTION_TYPES)
+      {
+         final AtomicLong newCount = new AtomicLong();
+         final AtomicLong existingCount = this.exceptionTypeCounts.putIfAbsent(exceptionType, newCount);
+         (existingCount != null ? existingCount : newCount).incrementAndGet();
+      }
+   }
+
+   /**
+    * Obtains the most frequently dispatched exception types.
+    *
+    * @param limit maximum number of types returned
+    * @return dispatch count by exception type, most frequent first
+    */
+   public Map<Class<?>, Long> getTopExceptionTypes(final int limit)
+   {
+      // Counts are copied first, so that concurrent increments can not break the ordering while sorting
+      final List<Map.Entry<Class<?>, Long>> entries = new ArrayList<Map.Entry<Class<?>, Long>>();
+      for (Map.Entry<Class<?>, AtomicLong> entry : this.exceptionTypeCounts.entrySet())
+      {
+         entries.add(new AbstractMap.SimpleImmutableEntry<Class<?>, Long>(entry.getKey(), entry.getValue().get()));
+      }
+
+      Collections.sort(entries, new Comparator<Map.Entry<Class<?>, Long>>()
+      {
+         public int compare(Map.Entry<Class<?>, Long> lhs, Map.Entry<Class<?>, Long> rhs)
+         {
+            return rhs.getValue().compareTo(lhs.getValue());
+         }
+      });
+
+      final Map<Class<?>, Long> topTypes = new LinkedHashMap<Class<?>, Long>();
+      for (int i = 0; i < entries.size() && i < limit; i++)
+      {
+         topTypes.put(entries.get(i).getKey(), entries.get(i).getValue());
+      }
+      return Collections.unmodifiableMap(topTypes);
+   }
+
+   /**
+    * Obtains the metrics of the given handler.
+    *
+    * @param handler registered handler
+    * @return metrics of the handler, null if it is not registered
+    */
+   public HandlerMetrics getHandlerMetrics(final HandlerMethod<?> handler)
+   {
+      final int ordinal = handler.getOrdinal();
+
+      if (ordinal < 0 || ordinal >= this.handlers.length || this.handlers[ordinal] != handler)
+      {
+         return null;
+      }
+
+      final HandlerMetrics metrics = this.handlerMetrics.get(ordinal);
+      if (metrics != null)
+      {
+         return metrics;
+      }
+
+      this.handlerMetrics.compareAndSet(ordinal, null, new HandlerMetrics(handler));
+      return this.handlerMetrics.get(ordinal);
+   }
+
+   /**
+    * Obtains the metrics of all handlers invoked at least once since the metrics were created or reset.
+    */
+   public List<HandlerMetrics> getInvokedHandlerMetrics()
+   {
+      final List<HandlerMetrics> invoked = new ArrayList<HandlerMetrics>();
+
+      for (int i = 0; i < this.handlerMetrics.length(); i++)
+      {
+         final HandlerMetrics metrics = this.handlerMetrics.get(i);
+         if (metrics != null && metrics.getInvocationCount() > 0)
+         {
+            invoked.add(metrics);
+         }
+      }
+      return Collections.unmodifiableList(invoked);
+   }
+
+   /**
+    * Obtains the number of dispatched exceptions, not counting those found to have no handlers upfront.
+    */
+   public long getDispatchCount()
+   {
+      return this.dispatchCount.get();
+   }
+
+   /**
+    * Obtains the number of synchronous handler invocations over all dispatches.
+    */
+   public long getHandlerInvocationCount()
+   {
+      return this.handlerInvocationCount.get();
+   }
+
+   /**
+    * Obtains the number of exception stack elements over all dispatches.
+    */
+   public long getCauseElementCount()
+   {
+      return this.causeElementCount.get();
+   }
+
+   /**
+    * Obtains the largest number of exception stack elements of a single dispatch.
+    */
+   public long getMaxCauseDepth()
+   {
+      return this.maxCauseDepth.get();
+   }
+
+   /**
+    * Obtains the duration of the dispatches in nanoseconds.
+    */
+   public LatencyHistogram getDispatchLatency()
+   {
+      return this.dispatchLatency;
+   }
+
+   /**
+    * Discards all counters and latencies, including those of the handlers.
+    */
+   public void reset()
+   {
+      for (int i = 0; i < this.handlerMetrics.length(); i++)
+      {
+         final HandlerMetrics metrics = this.handlerMetrics.get(i);
+         if (metrics != null)
+         {
+            metrics.reset();
+         }
+      }
+      this.dispatchCount.set(0);
+      this.handlerInvocationCount.set(0);
+      this.causeElementCount.set(0);
+      this.maxCauseDepth.set(0);
+      this.dispatchLatency.reset();
+      this.exceptionTypeCounts.clear();
+   }
+}
@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Reports the exceptions skipped at the end of a burst to coalescing handlers, see {@link Handles#coalesceWindow()}.
+ * A daemon thread collects the {@link ExceptionCoalescer.Report reports} of closed and evicted windows periodically and
+ * notifies each handler with the count, so skipped exceptions are reported within two windows even if no identical
+ * exception follows.  This class is thread safe.
+ * <p/>
+ * Synchronous handlers are notified on the reporting thread, asynchronous ones through their executor.  Like
+ * asynchronous handlers, they run outside any request and should be application scoped or dependent.  Exceptions
+ * thrown by a handler are logged.  The skipped exceptions themselves are not kept, handlers are passed exceptions
+ * recreated from their fingerprint; if those can not be created, the count is logged instead.
+ */
+public class CoalescedExceptionReporter implements Runnable
+{
+   private static final Logger log = Logger.getLogger(CoalescedExceptionReporter.class);
+
+   private final ExceptionCoalescer coalescer;
+   private final HandlerMethod<?>[] handlers;
+   private final BeanManager bm;
+   private final AsyncHandlerExecutor asyncExecutor;
+   private final ScheduledExecutorService scheduler;
+
+   /**
+    * Sole constructor.
+    *
+    * @param coalescer     coalescer to collect reports from
+    * @param handlers      all handlers
+    * @param bm            active BeanManager
+    * @param asyncExecutor executor of asynchronous handlers, may be null if no handler is asynchronous
+    */
+   public CoalescedExceptionReporter(final ExceptionCoalescer coalescer, final Collection<HandlerMethod> handlers,
+                                     final BeanManager bm, final AsyncHandlerExecutor asyncExecutor)
+   {
+      int maxOrdinal = -1;
+      for (HandlerMethod<?> handler : handlers)
+      {
+         maxOrdinal = Math.max(maxOrdinal, handler.getOrdinal());
+      }
+
+      this.handlers = new HandlerMethod<?>[maxOrdinal + 1];
+      for (HandlerMethod<?> handler : handlers)
+      {
+         this.handlers[handler.getOrdinal()] = handler;
+      }
+
+      this.coalescer = coalescer;
+      this.bm = bm;
+      this.asyncExecutor = asyncExecutor;
+      this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+      {
+         public Thread newThread(Runnable task)
+         {
+            final Thread thread = new Thread(task, "seam-catch-coalescer");
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+   }
+
+   /**
+    * Starts collecting reports.
+    *
+    * @param periodMillis time between two collections, usually the shortest coalescing window
+    */
+   public void start(final long periodMillis)
+   {
+      this.scheduler.scheduleWithFixedDelay(this, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Collects the reports of closed windows and notifies their handlers.
+    */
+   public void run()
+   {
+      final List<ExceptionCoalescer.Report> reports = this.coalescer.collectReports(System.nanoTime());
+
+      for (int i = 0; i < reports.size(); i++)
+      {
+         this.report(reports.get(i));
+      }
+   }
+
+   /**
+    * Stops collecting reports.  Reports of windows still open are dropped.
+    */
+   public void shutdown()
+   {
+      this.scheduler.shutdownNow();
+   }
+
+   @SuppressWarnings("unchecked")
+   private void report(ExceptionCoalescer.Report report)
+   {
+      final HandlerMethod handler = report.getHandlerOrdinal() < this.handlers.length ?
+            this.handlers[report.getHandlerOrdinal()] : null;
+
+      if (handler == null)
+      {
+         return;
+      }
+
+      final CaughtException<?> event = report.createEvent();
+
+      if (event == null)
+      {
+         log.warn(report.getOccurrences() + " skipped " + report.getCauseType().getName()
+               + " can not be reported, the exceptions can not be recreated: " + handler);
+         return;
+      }
+
+      if (handler.isAsync() && this.asyncExecutor != null)
+      {
+         this.asyncExecutor.submit(handler, event, this.bm);
+         return;
+      }
+
+      try
+      {
+         handler.notify(event, this.bm);
+      }
+      catch (RuntimeException e)
+      {
+         log.error("Coalescing handler failed reporting " + report.getOccurrences() + " skipped "
+               + event.getException().getClass().getName() + ": " + handler, e);
+      }
+   }
+}
@@ -0,0 +1,64 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.lang.annotation.Annotation;
+import java.util.Set;
+
+/**
+ * Receives the lifecycle of exception dispatches, for profilers and recorders.  A listener is installed with {@link
+ * org.jboss.seam.exception.control.extension.CatchExtension#setDispatchListener(DispatchListener)}; without one, and
+ * without an {@link ExceptionRecorder}, the dispatcher does not time or describe anything, so dispatches cost no more
+ * than two null checks.  The recorder is reported to in addition to the installed listener.
+ * <p/>
+ * Methods are called on the dispatching thread, or on an executor thread for asynchronous handlers, and must be
+ * thread safe.  Exceptions thrown by a listener propagate to the dispatcher, so implementations should not throw.
+ */
+public interface DispatchListener
+{
+   /**
+    * Called before the handlers of an exception are looked up.
+    *
+    * @param exception  exception being dispatched
+    * @param qualifiers qualifiers of the dispatch
+    */
+   void dispatchStarted(Throwable exception, Set<Annotation> qualifiers);
+
+   /**
+    * Called once the dispatch is complete, including when a handler threw an exception.  Asynchronous handlers reached
+    * by the dispatch may still be running.
+    *
+    * @param exception     exception being dispatched
+    * @param qualifiers    qualifiers of the dispatch
+    * @param causeDepth    number of exceptions in the cause chain, the exception itself included
+    * @param outcome       outcome of the dispatch
+    * @param durationNanos duration of the dispatch, in nanoseconds
+    */
+   void dispatchEnded(Throwable exception, Set<Annotation> qualifiers, int causeDepth, DispatchOutcome outcome,
+                      long durationNanos);
+
+   /**
+    * Called after each handler invocation, synchronous or asynchronous.
+    *
+    * @param handler       invoked handler
+    * @param exception     exception in the cause chain the handler was notified of
+    * @param durationNanos duration of the invocation, in nanoseconds
+    * @param failed        true if the handler threw an exception
+    */
+   void handlerInvoked(HandlerMethod<?> handler, Throwable exception, long durationNanos, boolean failed);
+}
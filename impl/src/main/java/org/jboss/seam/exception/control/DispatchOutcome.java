@@ -0,0 +1,59 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+/**
+ * Outcome of a dispatch, as reported to a {@link DispatchListener}.
+ */
+public enum DispatchOutcome
+{
+   /**
+    * No handler marked the exception handled.
+    */
+   NOT_HANDLED,
+   /**
+    * The exception was handled and no handler requested a re-throw.
+    */
+   HANDLED,
+   /**
+    * A handler requested the original exception or a new one to be thrown.
+    */
+   RETHROW,
+   /**
+    * A handler threw an exception, ending the dispatch.
+    */
+   FAILED;
+
+   /**
+    * Obtains the outcome of the given result.
+    *
+    * @param result result of the dispatch, null if a handler threw an exception
+    */
+   public static DispatchOutcome of(DispatchResult result)
+   {
+      if (result == null)
+      {
+         return FAILED;
+      }
+      if (result.isRethrow())
+      {
+         return RETHROW;
+      }
+      return result.isHandled() ? HANDLED : NOT_HANDLED;
+   }
+}
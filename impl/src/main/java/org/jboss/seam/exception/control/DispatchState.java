@@ -0,0 +1,225 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * State of a single dispatch.  If enabled by {@link
+ * org.jboss.seam.exception.control.extension.CatchExtension#setEventReuseEnabled(boolean)}, the state is reused by all
+ * dispatches on a thread, including a single {@link CaughtException} passed to every synchronous handler.  A handler
+ * may itself cause an exception to be dispatched, such a nested dispatch does not get the state of the thread and has
+ * to allocate its own.  This class is not thread safe, each instance is confined to a single thread.
+ * <p/>
+ * The thread local only holds a weak reference to the state, so that threads of a pool outliving the deployment do
+ * not keep its class loader alive.  The state is allocated again once the garbage collector has cleared it.
+ */
+final class DispatchState
+{
+   private static final ThreadLocal<WeakReference<DispatchState>> CURRENT =
+         new ThreadLocal<WeakReference<DispatchState>>();
+
+   private final ExceptionStack stack;
+   private final CaughtException<Throwable> event;
+   private final BitSet processedHandlers;
+   private BitSet admittedHandlers;
+   private Throwable exception;
+   private ExceptionFingerprint fingerprint;
+   private List<AsyncInvocation> asyncInvocations;
+   private boolean inUse;
+
+   private DispatchState(final Throwable exception, final boolean reusable, final int handlerCount)
+   {
+      this.stack = new ExceptionStack(exception);
+      this.event = reusable ? new CaughtException<Throwable>(this.stack, true, false) : null;
+      this.processedHandlers = new BitSet(handlerCount);
+      this.exception = exception;
+   }
+
+   /**
+    * Creates the state of a single dispatch, which passes a new {@link CaughtException} to every handler.
+    *
+    * @param exception    exception to be dispatched
+    * @param handlerCount number of registered handlers
+    * @return new state
+    */
+   static DispatchState create(final Throwable exception, final int handlerCount)
+   {
+      return new DispatchState(exception, false, handlerCount);
+   }
+
+   /**
+    * Obtains the state of the current thread, reset for dispatching the given exception.
+    *
+    * @param exception exception to be dispatched
+    * @return the state of the current thread, or null if it is already used by a dispatch further up the call stack
+    */
+   static DispatchState acquire(final Throwable exception)
+   {
+      final WeakReference<DispatchState> reference = CURRENT.get();
+      DispatchState state = reference != null ? reference.get() : null;
+
+      if (state == null)
+      {
+         state = new DispatchState(exception, true, 0);
+         CURRENT.set(new WeakReference<DispatchState>(state));
+      }
+      else if (state.inUse)
+      {
+         return null;
+      }
+      else
+      {
+         state.stack.reset(exception);
+         state.exception = exception;
+      }
+
+      state.inUse = true;
+      return state;
+   }
+
+   /**
+    * Ends the dispatch, the state no longer refers to the dispatched exception and, if reusable, may be acquired
+    * again.
+    */
+   void release()
+   {
+      if (this.event == null)
+      {
+         return;
+      }
+      this.stack.clear();
+      this.event.reset(this.stack, true, false);
+      this.processedHandlers.clear();
+      if (this.admittedHandlers != null)
+      {
+         this.admittedHandlers.clear();
+      }
+      this.exception = null;
+      this.fingerprint = null;
+      if (this.asyncInvocations != null)
+      {
+         this.asyncInvocations.clear();
+      }
+      this.inUse = false;
+   }
+
+   ExceptionStack getStack()
+   {
+      return this.stack;
+   }
+
+   BitSet getProcessedHandlers()
+   {
+      return this.processedHandlers;
+   }
+
+   /**
+    * Marks a coalescing handler as admitted by the coalescer, see {@link Handles#coalesceWindow()}.  The set of
+    * admitted handlers is only allocated once a dispatch reaches a coalescing handler.
+    *
+    * @param ordinal ordinal of the handler
+    * @return true if the handler had not been admitted before during this dispatch
+    */
+   boolean admit(final int ordinal)
+   {
+      if (this.admittedHandlers == null)
+      {
+         this.admittedHandlers = new BitSet();
+      }
+      else if (this.admittedHandlers.get(ordinal))
+      {
+         return false;
+      }
+      this.admittedHandlers.set(ordinal);
+      return true;
+   }
+
+   /**
+    * Obtains the fingerprint of the dispatched exception, computed once per dispatch when the first coalescing handler
+    * is reached, see {@link Handles#coalesceWindow()}.
+    */
+   ExceptionFingerprint getFingerprint()
+   {
+      if (this.fingerprint == null)
+      {
+         this.fingerprint = ExceptionFingerprint.of(this.exception);
+      }
+      return this.fingerprint;
+   }
+
+   /**
+    * Obtains the event for the next synchronous handler invocation, positioned at the current element of the
+    * exception stack.  A reusable state resets its single event, otherwise a new event is created.
+    *
+    * @param breadthFirstTraversal flag indicating the direction of the cause chain traversal
+    * @param handled               flag indicating the exception has already been handled by a previous handler
+    * @return the event to pass to the handler
+    */
+   CaughtException<Throwable> getEvent(final boolean breadthFirstTraversal, final boolean handled)
+   {
+      if (this.event == null)
+      {
+         return new CaughtException<Throwable>(this.stack, breadthFirstTraversal, handled);
+      }
+      this.event.reset(this.stack, breadthFirstTraversal, handled);
+      return this.event;
+   }
+
+   /**
+    * Defers the invocation of an asynchronous handler until the dispatch completes.  The list of deferred invocations
+    * is only allocated once a dispatch reaches an asynchronous handler.
+    *
+    * @param handler asynchronous handler
+    * @param event   event of its own to pass to the handler
+    */
+   void defer(final HandlerMethod<?> handler, final CaughtException<?> event)
+   {
+      if (this.asyncInvocations == null)
+      {
+         this.asyncInvocations = new ArrayList<AsyncInvocation>(2);
+      }
+      this.asyncInvocations.add(new AsyncInvocation(handler, event));
+   }
+
+   /**
+    * Obtains the asynchronous handler invocations deferred by this dispatch, null or empty if there are none.
+    */
+   List<AsyncInvocation> getAsyncInvocations()
+   {
+      return this.asyncInvocations;
+   }
+
+   /**
+    * Asynchronous handler reached during a dispatch, with the event it is to be notified of.
+    */
+   static final class AsyncInvocation
+   {
+      final HandlerMethod<?> handler;
+      final CaughtException<?> event;
+
+      AsyncInvocation(HandlerMethod<?> handler, CaughtException<?> event)
+      {
+         this.handler = handler;
+         this.event = event;
+      }
+   }
+}
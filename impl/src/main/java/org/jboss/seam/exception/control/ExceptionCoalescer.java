@@ -0,0 +1,391 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the coalescing windows of handlers, see {@link Handles#coalesceWindow()}.  A window is opened per handler and
+ * {@link ExceptionFingerprint} by the first exception passed to the handler, and counts the identical exceptions
+ * skipped while it is open.  A closed window is sealed, so that its count is read exactly once: either by the next
+ * identical exception, which is passed to the handler with that count and opens a new window, or as a {@link Report}
+ * from {@link #collectReports(long)}, which covers closed windows nobody reopened and windows evicted with a count.
+ * This class is thread safe.
+ * <p/>
+ * A window does not refer to any exception, it keeps its count and, besides the fingerprint, only the class of the
+ * cause the handler was reached for.  A report therefore passes the handler exceptions recreated from the
+ * fingerprint, see {@link Report#createEvent()}.  The number of windows is bounded.  Closed windows are evicted when
+ * the bound is reached, and if all windows are still open, exceptions with new fingerprints are not coalesced.
+ */
+public final class ExceptionCoalescer
+{
+   private final ConcurrentMap<WindowKey, Window> windows;
+   private final ConcurrentLinkedQueue<Report> evictedReports;
+   private final int maxWindows;
+   private final AtomicLong coalescedCount;
+
+   /**
+    * Sole constructor.
+    *
+    * @param maxWindows maximum number of windows kept
+    */
+   public ExceptionCoalescer(final int maxWindows)
+   {
+      this.windows = new ConcurrentHashMap<WindowKey, Window>();
+      this.evictedReports = new ConcurrentLinkedQueue<Report>();
+      this.maxWindows = maxWindows;
+      this.coalescedCount = new AtomicLong();
+   }
+
+   /**
+    * Decides whether the handler is invoked for an exception with the given fingerprint.  Call it once per handler and
+    * dispatch, as every call counts an exception.
+    *
+    * @param handlerOrdinal        ordinal of the coalescing handler, see {@link HandlerMethod#getOrdinal()}
+    * @param windowMillis          coalescing window of the handler in milliseconds
+    * @param fingerprint           fingerprint of the exception
+    * @param now                   current time as given by {@link System#nanoTime()}
+    * @param stack                 stack of the exception, positioned at the cause the handler is reached for, not
+    *                              referenced after the call
+    * @param breadthFirstTraversal flag indicating the direction of the cause chain traversal
+    * @param handled               flag indicating the exception has already been handled by a previous handler
+    * @return number of exceptions to report to the handler, see {@link CaughtException#getOccurrences()}, or zero if
+    *         the handler is to be skipped
+    */
+   public int admit(final int handlerOrdinal, final long windowMillis, final ExceptionFingerprint fingerprint,
+                    final long now, final ExceptionStack stack, final boolean breadthFirstTraversal,
+                    final boolean handled)
+   {
+      final long windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+      final WindowKey key = new WindowKey(handlerOrdinal, fingerprint);
+      final Class<?> causeType = stack.getCurrent().getClass();
+
+      while (true)
+      {
+         final Window window = this.windows.get(key);
+
+         if (window == null)
+         {
+            if (this.windows.size() >= this.maxWindows && !this.evictClosedWindows(now))
+            {
+               return 1;
+            }
+            if (this.windows.putIfAbsent(key, new Window(now, windowNanos, causeType, breadthFirstTraversal, handled))
+                  == null)
+            {
+               return 1;
+            }
+         }
+         else if (!window.isClosed(now))
+         {
+            if (window.skip())
+            {
+               this.coalescedCount.incrementAndGet();
+               return 0;
+            }
+            // Sealed by the collector or an eviction, about to be removed
+         }
+         else
+         {
+            final int skipped = window.seal();
+            if (skipped >= 0)
+            {
+               this.windows.replace(key, window,
+                     new Window(now, windowNanos, causeType, breadthFirstTraversal, handled));
+               return skipped + 1;
+            }
+         }
+      }
+   }
+
+   /**
+    * Removes the closed windows and obtains the counts of those which skipped exceptions, together with the counts of
+    * windows evicted since the last call.  Call it periodically, so that exceptions skipped at the end of a burst are
+    * reported even if no identical exception follows.
+    *
+    * @param now current time as given by {@link System#nanoTime()}
+    * @return reports of skipped exceptions, empty if there are none
+    */
+   public List<Report> collectReports(final long now)
+   {
+      List<Report> reports = null;
+
+      for (Iterator<Map.Entry<WindowKey, Window>> it = this.windows.entrySet().iterator(); it.hasNext();)
+      {
+         final Map.Entry<WindowKey, Window> entry = it.next();
+         final Window window = entry.getValue();
+
+         if (window.isClosed(now))
+         {
+            final int skipped = window.seal();
+            if (skipped >= 0)
+            {
+               this.windows.remove(entry.getKey(), window);
+               if (skipped > 0)
+               {
+                  if (reports == null)
+                  {
+                     reports = new ArrayList<Report>();
+                  }
+                  reports.add(new Report(entry.getKey(), skipped, window));
+               }
+            }
+         }
+      }
+
+      for (Report report = this.evictedReports.poll(); report != null; report = this.evictedReports.poll())
+      {
+         if (reports == null)
+         {
+            reports = new ArrayList<Report>();
+         }
+         reports.add(report);
+      }
+
+      return reports != null ? reports : Collections.<Report>emptyList();
+   }
+
+   /**
+    * Obtains the number of exceptions not passed to a handler because of coalescing.
+    */
+   public long getCoalescedCount()
+   {
+      return this.coalescedCount.get();
+   }
+
+   /**
+    * Obtains the number of windows kept, open or closed.
+    */
+   public int getWindowCount()
+   {
+      return this.windows.size();
+   }
+
+   /**
+    * Discards all windows and pending reports.
+    */
+   public void clear()
+   {
+      this.windows.clear();
+      this.evictedReports.clear();
+   }
+
+   /**
+    * Removes closed windows, keeping the counts of those which skipped exceptions for {@link #collectReports(long)}.
+    *
+    * @return true if space for a new window is available afterwards
+    */
+   private boolean evictClosedWindows(final long now)
+   {
+      for (Iterator<Map.Entry<WindowKey, Window>> it = this.windows.entrySet().iterator(); it.hasNext();)
+      {
+         final Map.Entry<WindowKey, Window> entry = it.next();
+         final Window window = entry.getValue();
+
+         if (window.isClosed(now))
+         {
+            final int skipped = window.seal();
+            if (skipped >= 0)
+            {
+               this.windows.remove(entry.getKey(), window);
+               if (skipped > 0)
+               {
+                  this.evictedReports.add(new Report(entry.getKey(), skipped, window));
+               }
+            }
+         }
+      }
+      return this.windows.size() < this.maxWindows;
+   }
+
+   /**
+    * Count of exceptions a handler skipped in a window which was closed without being reopened, or was evicted.  This
+    * class is immutable.
+    */
+   public static final class Report
+   {
+      private final int handlerOrdinal;
+      private final int occurrences;
+      private final ExceptionFingerprint fingerprint;
+      private final Class<?> causeType;
+      private final boolean breadthFirstTraversal;
+      private final boolean handled;
+
+      Report(WindowKey key, int occurrences, Window window)
+      {
+         this.handlerOrdinal = key.ordinal;
+         this.occurrences = occurrences;
+         this.fingerprint = key.fingerprint;
+         this.causeType = window.causeType;
+         this.breadthFirstTraversal = window.breadthFirstTraversal;
+         this.handled = window.handled;
+      }
+
+      public int getHandlerOrdinal()
+      {
+         return this.handlerOrdinal;
+      }
+
+      /**
+       * Obtains the number of skipped exceptions.
+       */
+      public int getOccurrences()
+      {
+         return this.occurrences;
+      }
+
+      /**
+       * Obtains the class of the exception the handler was reached for.
+       */
+      public Class<?> getCauseType()
+      {
+         return this.causeType;
+      }
+
+      /**
+       * Creates the event to notify the handler of, carrying the count of skipped exceptions.  The skipped exceptions
+       * are no longer referenced, so the event is positioned at an exception of a chain recreated from the
+       * fingerprint: exceptions of the same classes, with the same top frames, but a message stating the count rather
+       * than the original messages, see {@link ExceptionFingerprint#createStandIn(String)}.
+       *
+       * @return event to notify the handler of, or null if the exceptions can not be recreated
+       */
+      public CaughtException<?> createEvent()
+      {
+         final Throwable standIn = this.fingerprint.createStandIn(this.occurrences
+               + " identical exceptions skipped by a coalescing handler");
+         if (standIn == null)
+         {
+            return null;
+         }
+
+         final ExceptionStack stack = new ExceptionStack(standIn);
+         int index = stack.getIndex();
+         while (index >= 0 && stack.getCurrent().getClass() != this.causeType)
+         {
+            stack.setIndex(--index);
+         }
+         if (index < 0)
+         {
+            return null;
+         }
+
+         final CaughtException<?> event = new CaughtException<Throwable>(stack, this.breadthFirstTraversal,
+               this.handled);
+         event.setOccurrences(this.occurrences);
+         return event;
+      }
+   }
+
+   private static final class WindowKey
+   {
+      private final int ordinal;
+      private final ExceptionFingerprint fingerprint;
+
+      WindowKey(int ordinal, ExceptionFingerprint fingerprint)
+      {
+         this.ordinal = ordinal;
+         this.fingerprint = fingerprint;
+      }
+
+      @Override
+      public boolean equals(Object o)
+      {
+         if (!(o instanceof WindowKey))
+         {
+            return false;
+         }
+
+         final WindowKey that = (WindowKey) o;
+         return this.ordinal == that.ordinal && this.fingerprint.equals(that.fingerprint);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return 31 * this.ordinal + this.fingerprint.hashCode();
+      }
+   }
+
+   private static final class Window
+   {
+      private final long start;
+      private final long length;
+      /**
+       * Number of skipped exceptions, or -1 once the window is sealed.
+       */
+      private final AtomicInteger skipped;
+      private final Class<?> causeType;
+      private final boolean breadthFirstTraversal;
+      private final boolean handled;
+
+      Window(long start, long length, Class<?> causeType, boolean breadthFirstTraversal, boolean handled)
+      {
+         this.start = start;
+         this.length = length;
+         this.skipped = new AtomicInteger();
+         this.causeType = causeType;
+         this.breadthFirstTraversal = breadthFirstTraversal;
+         this.handled = handled;
+      }
+
+      boolean isClosed(long now)
+      {
+         return now - this.start >= this.length;
+      }
+
+      /**
+       * Counts a skipped exception, unless the window is sealed.
+       */
+      boolean skip()
+      {
+         while (true)
+         {
+            final int current = this.skipped.get();
+            if (current < 0)
+            {
+               return false;
+            }
+            if (this.skipped.compareAndSet(current, current + 1))
+            {
+               return true;
+            }
+         }
+      }
+
+      /**
+       * Seals the window, so that no more exceptions are counted.
+       *
+       * @return number of skipped exceptions, or -1 if the window was already sealed
+       */
+      int seal()
+      {
+         return this.skipped.getAndSet(-1);
+      }
+   }
+}
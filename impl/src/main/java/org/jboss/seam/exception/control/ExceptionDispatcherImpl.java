@@ -0,0 +1,54 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import javax.enterprise.event.Event;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+
+import org.jboss.seam.exception.control.extension.CatchExtension;
+
+/**
+ * Implementation of {@link ExceptionDispatcher}, handing the exception straight to {@link ExceptionHandlerDispatch}.
+ */
+public class ExceptionDispatcherImpl implements ExceptionDispatcher
+{
+   private final ExceptionHandlerDispatch handlerDispatch = new ExceptionHandlerDispatch();
+
+   @Inject
+   private BeanManager bm;
+
+   @Inject
+   private CatchExtension extension;
+
+   @Inject
+   private Event<ExceptionStack> stackEvent;
+
+   /**
+    * {@inheritDoc}
+    */
+   public DispatchResult dispatch(final ExceptionToCatch exceptionToCatch)
+   {
+      if (exceptionToCatch == null)
+      {
+         throw new IllegalArgumentException("null is not valid for exceptionToCatch");
+      }
+
+      return this.handlerDispatch.dispatch(exceptionToCatch, this.bm, this.extension, this.stackEvent);
+   }
+}
@@ -0,0 +1,189 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Identity of an exception for coalescing, see {@link Handles#coalesceWindow()}.  Two exceptions have equal
+ * fingerprints if their cause chains consist of the same classes, and the top frames of both the outermost exception
+ * and the root cause are equal.  Messages are ignored.  This class is immutable.
+ * <p/>
+ * A fingerprint does not refer to the exception it was computed from.  It can recreate exceptions of the same classes
+ * and frames, see {@link #createStandIn(String)}.
+ */
+public final class ExceptionFingerprint
+{
+   /**
+    * Number of stack frames, from the top, compared per exception.
+    */
+   public static final int FRAMES = 3;
+
+   /**
+    * Causes beyond this depth are ignored, which also ends cyclic cause chains.
+    */
+   private static final int MAX_CAUSES = 32;
+
+   private static final StackTraceElement[] NO_FRAMES = new StackTraceElement[0];
+
+   private final Class<?>[] causeTypes;
+   private final StackTraceElement[] frames;
+   /**
+    * Number of frames, at the start of {@link #frames}, of the outermost exception, the rest are of the root cause.
+    */
+   private final int outerFrames;
+   private final int hashCode;
+
+   private ExceptionFingerprint(Class<?>[] causeTypes, StackTraceElement[] frames, int outerFrames)
+   {
+      this.causeTypes = causeTypes;
+      this.frames = frames;
+      this.outerFrames = outerFrames;
+      this.hashCode = 31 * (31 * Arrays.hashCode(causeTypes) + Arrays.hashCode(frames)) + outerFrames;
+   }
+
+   /**
+    * Computes the fingerprint of the given exception.
+    *
+    * @param exception exception to fingerprint
+    * @return fingerprint of the exception
+    */
+   public static ExceptionFingerprint of(final Throwable exception)
+   {
+      final List<Class<?>> causeTypes = new ArrayList<Class<?>>(4);
+      Throwable rootCause = exception;
+
+      for (Throwable t = exception; t != null && causeTypes.size() < MAX_CAUSES; t = t.getCause())
+      {
+         causeTypes.add(t.getClass());
+         rootCause = t;
+      }
+
+      final StackTraceElement[] outerTrace = exception.getStackTrace();
+      final StackTraceElement[] rootTrace = rootCause == exception ? NO_FRAMES : rootCause.getStackTrace();
+      final int outerFrames = Math.min(FRAMES, outerTrace.length);
+      final int rootFrames = Math.min(FRAMES, rootTrace.length);
+      final StackTraceElement[] frames = new StackTraceElement[outerFrames + rootFrames];
+
+      System.arraycopy(outerTrace, 0, frames, 0, outerFrames);
+      System.arraycopy(rootTrace, 0, frames, outerFrames, rootFrames);
+
+      return new ExceptionFingerprint(causeTypes.toArray(new Class<?>[causeTypes.size()]), frames, outerFrames);
+   }
+
+   /**
+    * Creates a chain of new exceptions of the fingerprinted classes, standing in for exceptions no longer referenced.
+    * Every exception of the chain has the given message.  The outermost exception and the root cause have the
+    * fingerprinted frames, the exceptions in between have none.
+    *
+    * @param message message of the exceptions
+    * @return the outermost exception of the chain, or null if a class of the chain has neither a public constructor
+    *         taking a message nor a public constructor without parameters, or does not accept a cause
+    */
+   Throwable createStandIn(final String message)
+   {
+      Throwable cause = null;
+
+      for (int i = this.causeTypes.length - 1; i >= 0; i--)
+      {
+         final Throwable exception = instantiate(this.causeTypes[i], message);
+         if (exception == null)
+         {
+            return null;
+         }
+         if (cause != null)
+         {
+            try
+            {
+               exception.initCause(cause);
+            }
+            catch (IllegalStateException e)
+            {
+               return null;
+            }
+         }
+
+         if (i == 0)
+         {
+            exception.setStackTrace(Arrays.copyOfRange(this.frames, 0, this.outerFrames));
+         }
+         else if (i == this.causeTypes.length - 1)
+         {
+            exception.setStackTrace(Arrays.copyOfRange(this.frames, this.outerFrames, this.frames.length));
+         }
+         else
+         {
+            exception.setStackTrace(NO_FRAMES);
+         }
+         cause = exception;
+      }
+      return cause;
+   }
+
+   private static Throwable instantiate(final Class<?> type, final String message)
+   {
+      try
+      {
+         try
+         {
+            return (Throwable) type.getConstructor(String.class).newInstance(message);
+         }
+         catch (NoSuchMethodException e)
+         {
+            return (Throwable) type.getConstructor().newInstance();
+         }
+      }
+      catch (Exception e)
+      {
+         return null;
+      }
+   }
+
+   @Override
+   public boolean equals(Object o)
+   {
+      if (this == o)
+      {
+         return true;
+      }
+      if (o == null || getClass() != o.getClass())
+      {
+         return false;
+      }
+
+      final ExceptionFingerprint that = (ExceptionFingerprint) o;
+
+      return this.hashCode == that.hashCode && this.outerFrames == that.outerFrames
+            && Arrays.equals(this.causeTypes, that.causeTypes) && Arrays.equals(this.frames, that.frames);
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return this.hashCode;
+   }
+
+   @Override
+   public String toString()
+   {
+      return new StringBuilder("ExceptionFingerprint{").append("causeTypes=").append(Arrays.toString(this.causeTypes))
+            .append(", frames=").append(Arrays.toString(this.frames)).append('}').toString();
+   }
+}
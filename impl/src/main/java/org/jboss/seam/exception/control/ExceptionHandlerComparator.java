@@ -17,92 +17,60 @@
 
 package org.jboss.seam.exception.control;
 
-import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.Set;
-
-import org.jboss.seam.solder.reflection.HierarchyDiscovery;
 
 /**
- * Comparator to sort exception handlers according qualifier ({@link TraversalMode#DEPTH_FIRST} first), precedence
- * (highest to lowest) and finally hierarchy (least to most specific).
+ * Comparator to sort exception handlers according traversal mode ({@link TraversalMode#BREADTH_FIRST} first),
+ * hierarchy (least to most specific) and finally precedence.
+ * <p/>
+ * All of the ordering criteria are known once a handler is found, so they are packed into a single sort key (see
+ * {@link #createSortKey(TraversalMode, int, int)}) and comparing two handlers is a comparison of two longs. Distinct
+ * handlers may have equal keys, so this comparator is meant to be used with a stable sort, not with a sorted set.
  */
-@SuppressWarnings( { "MethodWithMoreThanThreeNegations", "unchecked" })
 public final class ExceptionHandlerComparator implements Comparator<HandlerMethod>
 {
+   private static final int TRAVERSAL_MODE_SHIFT = 62;
+   private static final int DEPTH_SHIFT = 32;
+   private static final long DEPTH_MASK = (1L << (TRAVERSAL_MODE_SHIFT - DEPTH_SHIFT)) - 1;
 
    /**
     * {@inheritDoc}
     */
    public int compare(HandlerMethod lhs, HandlerMethod rhs)
    {
-      if (lhs.equals(rhs))
-      {
-         return 0;
-      }
+      final long lhsKey = lhs.getSortKey();
+      final long rhsKey = rhs.getSortKey();
 
-      if (lhs.getTraversalMode() == rhs.getTraversalMode())
+      if (lhsKey < rhsKey)
       {
-         // Really this is so all handlers are returned in the TreeSet (even if they're of the same type, but one is
-         // inbound, the other is outbound
-         if (lhs.getExceptionType().equals(rhs.getExceptionType()))
-         {
-            final int returnValue = this.comparePrecedence(lhs.getPrecedence(), rhs.getPrecedence(),
-                  lhs.getTraversalMode() == TraversalMode.DEPTH_FIRST);
-            // Compare number of qualifiers if they exist so handlers that handle the same type
-            // are both are returned and not thrown out (order doesn't really matter)
-            if (returnValue == 0 && !lhs.getQualifiers().isEmpty())
-            {
-               return -1;
-            }
-
-            // Either precedence is non-zero or lhs doesn't have qualifiers so return the precedence compare
-            // If it's 0 this is essentially the same handler for our purposes
-            return returnValue;
-         }
-         else
-         {
-            return compareHierarchies(lhs.getExceptionType(), rhs.getExceptionType());
-         }
+         return -1;
       }
-      else if (lhs.getTraversalMode() == TraversalMode.BREADTH_FIRST)
-      {
-         return -1; // Descending first
-      }
-      else
+      if (lhsKey > rhsKey)
       {
          return 1;
       }
+      return 0;
    }
 
-   private int compareHierarchies(Type lhsExceptionType, Type rhsExceptionType)
+   /**
+    * Creates the sort key of a handler.  From the most to the least significant bits the key holds the traversal mode
+    * ({@link TraversalMode#BREADTH_FIRST} first), the hierarchy depth of the handled type (least specific first) and
+    * the precedence (ascending for {@link TraversalMode#DEPTH_FIRST}, descending for {@link
+    * TraversalMode#BREADTH_FIRST}, as depth first handlers are invoked in reverse order).
+    *
+    * @param traversalMode traversal mode of the handler
+    * @param depth         hierarchy depth of the handled exception type, see {@link
+    *                      ExceptionTypeIndex#getDepth(java.lang.reflect.Type)}
+    * @param precedence    precedence of the handler
+    * @return key whose natural ordering is the handler ordering
+    */
+   public static long createSortKey(final TraversalMode traversalMode, final int depth, final int precedence)
    {
-      HierarchyDiscovery lhsHierarchy = new HierarchyDiscovery(lhsExceptionType);
-      Set<Type> lhsTypeclosure = lhsHierarchy.getTypeClosure();
-
-      if (lhsTypeclosure.contains(rhsExceptionType))
-      {
-         final int indexOfLhsType = new ArrayList(lhsTypeclosure).indexOf(lhsExceptionType);
-         final int indexOfRhsType = new ArrayList(lhsTypeclosure).indexOf(rhsExceptionType);
+      final long modeBits = traversalMode == TraversalMode.BREADTH_FIRST ? 0L : 1L;
+      final long precedenceBits = traversalMode == TraversalMode.DEPTH_FIRST
+            ? (long) precedence - Integer.MIN_VALUE
+            : (long) Integer.MAX_VALUE - precedence;
 
-         if (indexOfLhsType > indexOfRhsType)
-         {
-            return 1;
-         }
-      }
-      return -1;
-   }
-
-   private int comparePrecedence(final int lhs, final int rhs, final boolean isAsc)
-   {
-      if (isAsc)
-      {
-         return (lhs - rhs);
-      }
-      else
-      {
-         return (lhs - rhs) * -1;
-      }
+      return (modeBits << TRAVERSAL_MODE_SHIFT) | ((depth & DEPTH_MASK) << DEPTH_SHIFT) | precedenceBits;
    }
 }
@@ -16,19 +16,17 @@
  */
 package org.jboss.seam.exception.control;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.lang.annotation.Annotation;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 
-import javax.enterprise.context.spi.CreationalContext;
 import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.spi.BeanManager;
 
+import org.jboss.logging.Logger;
 import org.jboss.seam.exception.control.extension.CatchExtension;
 
 /**
@@ -37,6 +35,12 @@ import org.jboss.seam.exception.control.extension.CatchExtension;
  */
 public class ExceptionHandlerDispatch
 {
+   private static final Logger log = Logger.getLogger(ExceptionHandlerDispatch.class);
+
+   private static final DispatchResult HANDLED = new DispatchResult(true, null);
+
+   private static final DispatchResult NOT_HANDLED = new DispatchResult(false, null);
+
    /**
     * Observes the event, finds the correct exception handler(s) and invokes them.
     *
@@ -46,125 +50,419 @@ public class ExceptionHandlerDispatch
     * @param stackEvent     Event for modifying the exception stack
     * @throws Throwable If a handler requests the exception to be re-thrown.
     */
-   @SuppressWarnings( { "unchecked", "MethodWithMultipleLoops", "ThrowableResultOfMethodCallIgnored" })
    public void executeHandlers(@Observes @Any ExceptionToCatch eventException, final BeanManager bm,
                                CatchExtension extension, Event<ExceptionStack> stackEvent) throws Throwable
    {
-      final Stack<Throwable> unwrappedExceptions = new Stack<Throwable>();
-      CreationalContext<Object> ctx = null;
+      final DispatchResult result = this.dispatch(eventException, bm, extension, stackEvent);
 
-      Throwable throwException = null;
+      if (result.isRethrow())
+      {
+         throw result.getThrowException();
+      }
+   }
+
+   /**
+    * Finds the correct exception handler(s) and invokes them.
+    *
+    * @param eventException exception to be invoked
+    * @param bm             active bean manager
+    * @param extension      catch extension instance to obtain handlers
+    * @param stackEvent     Event for modifying the exception stack
+    * @return outcome of the handler invocations, including the exception to re-throw if a handler requested it
+    */
+   public DispatchResult dispatch(ExceptionToCatch eventException, final BeanManager bm, CatchExtension extension,
+                                  Event<ExceptionStack> stackEvent)
+   {
+      final DispatchListener listener = getListener(extension);
 
+      if (listener == null)
+      {
+         return this.dispatch(eventException, bm, extension, stackEvent, null);
+      }
+
+      final Throwable exception = eventException.getException();
+      final Set<Annotation> qualifiers = eventException.getQualifiers();
+      final long start = System.nanoTime();
+      DispatchResult result = null;
+
+      listener.dispatchStarted(exception, qualifiers);
       try
       {
-         ctx = bm.createCreationalContext(null);
+         result = this.dispatch(eventException, bm, extension, stackEvent, listener);
+         return result;
+      }
+      finally
+      {
+         listener.dispatchEnded(exception, qualifiers, countCauses(exception), DispatchOutcome.of(result),
+               System.nanoTime() - start);
+      }
+   }
 
-         final Set<HandlerMethod> processedHandlers = new HashSet<HandlerMethod>();
+   /**
+    * Prepares the dispatch state and invokes the handlers, reporting handler invocations if listener is not null.
+    */
+   private DispatchResult dispatch(ExceptionToCatch eventException, final BeanManager bm, CatchExtension extension,
+                                   Event<ExceptionStack> stackEvent, DispatchListener listener)
+   {
+      final Set<Annotation> qualifiers = eventException.getQualifiers();
+      final long qualifierMask = extension.getQualifierMask(qualifiers);
 
-         final ExceptionStack stack = new ExceptionStack(eventException.getException());
+      if (extension.isUnhandled(eventException.getException(), qualifierMask))
+      {
+         return result(eventException.isHandled(), null);
+      }
 
-         stackEvent.fire(stack); // Allow for modifying the exception stack
+      final DispatchState reusedState = extension.isEventReuseEnabled() ?
+            DispatchState.acquire(eventException.getException()) : null;
+      final DispatchState state = reusedState != null ? reusedState :
+            DispatchState.create(eventException.getException(), extension.getHandlerCount());
+      final CatchMetrics metrics = extension.isMetricsEnabled() ? extension.getMetrics() : null;
+      final long start = metrics != null ? System.nanoTime() : 0;
+
+      try
+      {
+         final DispatchResult result = this.dispatch(eventException, bm, extension, stackEvent, qualifiers,
+               qualifierMask, state, metrics, listener);
+
+         if (state.getAsyncInvocations() != null)
+         {
+            submit(state.getAsyncInvocations(), bm, extension, listener);
+         }
+         return result;
+      }
+      finally
+      {
+         if (metrics != null)
+         {
+            metrics.recordDispatch(eventException.getException().getClass(),
+                  state.getStack().getCauseElements().size(), System.nanoTime() - start);
+         }
+         state.release();
+      }
+   }
+
+   /**
+    * Hands the asynchronous handlers reached during a dispatch to the executor, once the synchronous handlers are done.
+    * Only called if the dispatch completes normally, a synchronous handler throwing an exception ends the dispatch
+    * without any asynchronous handler being submitted.  Before the deployment is validated there is no executor yet,
+    * the handlers are then invoked on the dispatching thread.
+    */
+   private static void submit(List<DispatchState.AsyncInvocation> asyncInvocations, BeanManager bm,
+                              CatchExtension extension, DispatchListener listener)
+   {
+      final AsyncHandlerExecutor executor = extension.getAsyncExecutor();
 
-         // TODO: Clean this up so there's only the while and one for loop
-         inbound_cause:
-         while (stack.getCurrent() != null)
+      for (int i = 0; i < asyncInvocations.size(); i++)
+      {
+         final DispatchState.AsyncInvocation invocation = asyncInvocations.get(i);
+         if (executor != null)
+         {
+            executor.submit(invocation.handler, invocation.event, bm, listener);
+         }
+         else
          {
+            invokeInline(invocation.handler, invocation.event, bm, listener);
+         }
+      }
+   }
 
-            final List<HandlerMethod> breadthFirstHandlerMethods = new ArrayList<HandlerMethod>(
-                  extension.getHandlersForExceptionType(stack.getCurrent().getClass(),
-                        bm, eventException.getQualifiers(), TraversalMode.BREADTH_FIRST));
+   /**
+    * Invokes an asynchronous handler on the dispatching thread.  As on the executor, an exception thrown by the handler
+    * is logged rather than propagated.
+    */
+   private static void invokeInline(HandlerMethod handler, CaughtException event, BeanManager bm,
+                                    DispatchListener listener)
+   {
+      try
+      {
+         invoke(handler, event, bm, null, listener);
+      }
+      catch (RuntimeException e)
+      {
+         log.error("Asynchronous handler failed handling " + event.getException().getClass().getName() + ": "
+               + handler, e);
+      }
+   }
 
-            for (HandlerMethod handler : breadthFirstHandlerMethods)
+   /**
+    * Invokes the handlers.  Asynchronous handlers are not invoked but deferred in the state, with an event of their
+    * own.  Synchronous handler invocations are recorded if metrics is not null and reported if listener is not null.
+    */
+   @SuppressWarnings( { "unchecked", "MethodWithMultipleLoops", "ThrowableResultOfMethodCallIgnored" })
+   private DispatchResult dispatch(ExceptionToCatch eventException, final BeanManager bm, CatchExtension extension,
+                                   Event<ExceptionStack> stackEvent, Set<Annotation> qualifiers, long qualifierMask,
+                                   DispatchState state, CatchMetrics metrics, DispatchListener listener)
+   {
+      Throwable throwException = null;
+
+      final ExceptionStack stack = state.getStack();
+      final BitSet processedHandlers = state.getProcessedHandlers();
+
+      if (extension.isExceptionStackObserved())
+      {
+         stackEvent.fire(stack); // Allow for modifying the exception stack
+      }
+
+      // TODO: Clean this up so there's only the while and one for loop
+      inbound_cause:
+      while (stack.getCurrent() != null)
+      {
+
+         final List<HandlerMethod> breadthFirstHandlerMethods = extension.getHandlersForExceptionType(
+               stack.getCurrent().getClass(), qualifiers, qualifierMask, TraversalMode.BREADTH_FIRST);
+
+         for (int i = 0; i < breadthFirstHandlerMethods.size(); i++)
+         {
+            final HandlerMethod handler = breadthFirstHandlerMethods.get(i);
+            if (!processedHandlers.get(handler.getOrdinal()))
             {
-               if (!processedHandlers.contains(handler))
+               final CaughtException breadthFirstEvent = invokeHandler(handler, true, eventException, bm, extension,
+                     state, metrics, listener);
+
+               if (breadthFirstEvent == null)
                {
-                  final CaughtException breadthFirstEvent = new CaughtException(stack, true, eventException.isHandled());
-                  handler.notify(breadthFirstEvent, bm);
-
-                  if (!breadthFirstEvent.isUnmute())
-                  {
-                     processedHandlers.add(handler);
-                  }
-
-                  switch (breadthFirstEvent.getFlow())
-                  {
-                     case HANDLED:
-                        eventException.setHandled(true);
-                        return;
-                     case MARK_HANDLED:
-                        eventException.setHandled(true);
-                        break;
-                     case ABORT:
-                        return;
-                     case DROP_CAUSE:
-                        eventException.setHandled(true);
-                        stack.advanceToNextCause();
-                        continue inbound_cause;
-                     case RETHROW:
-                        throwException = eventException.getException();
-                        break;
-                     case THROW:
-                        throwException = breadthFirstEvent.getThrowNewException();
-                  }
+                  continue;
                }
-            }
 
-            final List<HandlerMethod> depthFirstHandlerMethods = new ArrayList<HandlerMethod>(
-                  extension.getHandlersForExceptionType(stack.getCurrent().getClass(),
-                        bm, eventException.getQualifiers(), TraversalMode.DEPTH_FIRST));
+               switch (breadthFirstEvent.getFlow())
+               {
+                  case HANDLED:
+                     eventException.setHandled(true);
+                     return HANDLED;
+                  case MARK_HANDLED:
+                     eventException.setHandled(true);
+                     break;
+                  case ABORT:
+                     return result(eventException.isHandled(), null);
+                  case DROP_CAUSE:
+                     eventException.setHandled(true);
+                     stack.advanceToNextCause();
+                     continue inbound_cause;
+                  case RETHROW:
+                     throwException = eventException.getException();
+                     break;
+                  case THROW:
+                     throwException = breadthFirstEvent.getThrowNewException();
+               }
+            }
+         }
 
-            // Reverse these so category handlers are last
-            Collections.reverse(depthFirstHandlerMethods);
+         final List<HandlerMethod> depthFirstHandlerMethods = extension.getHandlersForExceptionType(
+               stack.getCurrent().getClass(), qualifiers, qualifierMask, TraversalMode.DEPTH_FIRST);
 
-            for (HandlerMethod handler : depthFirstHandlerMethods)
+         // Walk these in reverse so category handlers are last
+         for (int i = depthFirstHandlerMethods.size() - 1; i >= 0; i--)
+         {
+            final HandlerMethod handler = depthFirstHandlerMethods.get(i);
+            if (!processedHandlers.get(handler.getOrdinal()))
             {
-               if (!processedHandlers.contains(handler))
+               final CaughtException depthFirstEvent = invokeHandler(handler, false, eventException, bm, extension,
+                     state, metrics, listener);
+
+               if (depthFirstEvent == null)
                {
-                  final CaughtException depthFirstEvent = new CaughtException(stack, false, eventException.isHandled());
-                  handler.notify(depthFirstEvent, bm);
-
-                  if (!depthFirstEvent.isUnmute())
-                  {
-                     processedHandlers.add(handler);
-                  }
-
-                  switch (depthFirstEvent.getFlow())
-                  {
-                     case HANDLED:
-                        eventException.setHandled(true);
-                        return;
-                     case MARK_HANDLED:
-                        eventException.setHandled(true);
-                        break;
-                     case ABORT:
-                        return;
-                     case DROP_CAUSE:
-                        eventException.setHandled(true);
-                        stack.advanceToNextCause();
-                        continue inbound_cause;
-                     case RETHROW:
-                        throwException = eventException.getException();
-                        break;
-                     case THROW:
-                        throwException = depthFirstEvent.getThrowNewException();
-                  }
+                  continue;
                }
-            }
 
-            stack.advanceToNextCause();
+               switch (depthFirstEvent.getFlow())
+               {
+                  case HANDLED:
+                     eventException.setHandled(true);
+                     return HANDLED;
+                  case MARK_HANDLED:
+                     eventException.setHandled(true);
+                     break;
+                  case ABORT:
+                     return result(eventException.isHandled(), null);
+                  case DROP_CAUSE:
+                     eventException.setHandled(true);
+                     stack.advanceToNextCause();
+                     continue inbound_cause;
+                  case RETHROW:
+                     throwException = eventException.getException();
+                     break;
+                  case THROW:
+                     throwException = depthFirstEvent.getThrowNewException();
+               }
+            }
          }
 
-         if (throwException != null)
-         {
-            throw throwException;
-         }
+         stack.advanceToNextCause();
+      }
+
+      return result(eventException.isHandled(), throwException);
+   }
+
+   /**
+    * Invokes a handler reached by the dispatch, unless it is skipped by its coalescing window or is asynchronous.  An
+    * asynchronous handler is deferred in the state, with an event of its own.  The handler is marked processed unless
+    * it asked to be unmuted.
+    *
+    * @return event the handler was notified of, null if it was skipped or is asynchronous
+    */
+   @SuppressWarnings("unchecked")
+   private static CaughtException invokeHandler(HandlerMethod handler, boolean breadthFirst,
+                                                ExceptionToCatch eventException, BeanManager bm,
+                                                CatchExtension extension, DispatchState state, CatchMetrics metrics,
+                                                DispatchListener listener)
+   {
+      final ExceptionStack stack = state.getStack();
+      final BitSet processedHandlers = state.getProcessedHandlers();
+      final int occurrences = admit(handler, breadthFirst, eventException, extension, state);
+      if (occurrences == 0)
+      {
+         processedHandlers.set(handler.getOrdinal());
+         return null;
+      }
+
+      if (handler.isAsync())
+      {
+         final CaughtException asyncEvent = new CaughtException(new ExceptionStack(stack.getCauseElements(),
+               stack.getIndex()), breadthFirst, eventException.isHandled());
+         asyncEvent.setOccurrences(occurrences);
+         state.defer(handler, asyncEvent);
+         processedHandlers.set(handler.getOrdinal());
+         return null;
+      }
+
+      final CaughtException event = state.getEvent(breadthFirst, eventException.isHandled());
+      event.setOccurrences(occurrences);
+      invoke(handler, event, bm, metrics, listener);
+
+      if (!event.isUnmute())
+      {
+         processedHandlers.set(handler.getOrdinal());
+      }
+      return event;
+   }
+
+   /**
+    * Asks the coalescer whether a coalescing handler is invoked, once per handler and dispatch.  An unmuted handler
+    * reached again for another cause of the same exception is invoked for a single occurrence, as the exception has
+    * already been counted.  The DispatchState keeps track of the handlers admitted so far and computes the fingerprint
+    * of the exception once per dispatch, when the first coalescing handler is reached.
+    *
+    * @return number of occurrences to report to the handler, zero if it is skipped
+    */
+   private static int admit(HandlerMethod handler, boolean breadthFirst, ExceptionToCatch eventException,
+                            CatchExtension extension, DispatchState state)
+   {
+      if (handler.getCoalesceWindow() <= 0)
+      {
+         return 1;
+      }
+
+      if (!state.admit(handler.getOrdinal()))
+      {
+         return 1;
+      }
+
+      return extension.getCoalescer().admit(handler.getOrdinal(), handler.getCoalesceWindow(),
+            state.getFingerprint(), System.nanoTime(), state.getStack(), breadthFirst, eventException.isHandled());
+   }
+
+   /**
+    * Invokes a handler, timing the invocation if metrics or listener is not null.
+    */
+   @SuppressWarnings("unchecked")
+   private static void invoke(HandlerMethod handler, CaughtException event, BeanManager bm, CatchMetrics metrics,
+                              DispatchListener listener)
+   {
+      if (metrics == null && listener == null)
+      {
+         handler.notify(event, bm);
+         return;
+      }
+
+      final long start = System.nanoTime();
+      boolean completed = false;
+      try
+      {
+         handler.notify(event, bm);
+         completed = true;
       }
       finally
       {
-         if (ctx != null)
+         final long nanos = System.nanoTime() - start;
+         if (metrics != null)
          {
-            ctx.release();
+            metrics.recordInvocation(handler, nanos, completed ? event.getFlow() : null);
          }
+         if (listener != null)
+         {
+            listener.handlerInvoked(handler, event.getException(), nanos, !completed);
+         }
+      }
+   }
+
+   /**
+    * Obtains the listener to report a dispatch to: the installed dispatch listener, the recorder, both or neither.
+    */
+   private static DispatchListener getListener(CatchExtension extension)
+   {
+      final DispatchListener listener = extension.getDispatchListener();
+      final ExceptionRecorder recorder = extension.getRecorder();
+
+      if (recorder == null)
+      {
+         return listener;
+      }
+      return listener == null ? recorder : new ListenerPair(recorder, listener);
+   }
+
+   /**
+    * Counts the exceptions in the cause chain of the given exception, the exception itself included.
+    */
+   private static int countCauses(Throwable exception)
+   {
+      int count = 0;
+      for (Throwable e = exception; e != null; e = e.getCause())
+      {
+         count++;
+      }
+      return count;
+   }
+
+   private static DispatchResult result(boolean handled, Throwable throwException)
+   {
+      if (throwException != null)
+      {
+         return new DispatchResult(handled, throwException);
+      }
+      return handled ? HANDLED : NOT_HANDLED;
+   }
+
+   /**
+    * Reports a dispatch to the recorder and to the installed dispatch listener, in that order.
+    */
+   private static final class ListenerPair implements DispatchListener
+   {
+      private final DispatchListener first;
+      private final DispatchListener second;
+
+      ListenerPair(DispatchListener first, DispatchListener second)
+      {
+         this.first = first;
+         this.second = second;
+      }
+
+      public void dispatchStarted(Throwable exception, Set<Annotation> qualifiers)
+      {
+         this.first.dispatchStarted(exception, qualifiers);
+         this.second.dispatchStarted(exception, qualifiers);
+      }
+
+      public void dispatchEnded(Throwable exception, Set<Annotation> qualifiers, int causeDepth,
+                                DispatchOutcome outcome, long durationNanos)
+      {
+         this.first.dispatchEnded(exception, qualifiers, causeDepth, outcome, durationNanos);
+         this.second.dispatchEnded(exception, qualifiers, causeDepth, outcome, durationNanos);
+      }
+
+      public void handlerInvoked(HandlerMethod<?> handler, Throwable exception, long durationNanos, boolean failed)
+      {
+         this.first.handlerInvoked(handler, exception, durationNanos, failed);
+         this.second.handlerInvoked(handler, exception, durationNanos, failed);
       }
    }
 }
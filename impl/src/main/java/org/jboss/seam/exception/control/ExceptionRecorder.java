@@ -0,0 +1,329 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Flight recorder of the most recent dispatches, installed as a {@link DispatchListener}.  Each dispatch is kept as an
+ * {@link ExceptionSummary} in a fixed size ring buffer, the oldest summary being overwritten once the buffer is full.
+ * Recording claims a slot with a single atomic increment and never locks, so its cost does not depend on the size of
+ * the buffer.  Summaries hold class names, which are shared with the classes themselves, and a bounded number of
+ * frames instead of exceptions.
+ * <p/>
+ * Building a summary walks at most {@link #MAX_CAUSES} causes and allocates the summary and a trace of the handlers
+ * invoked.  Unless no frames are kept, it also copies the stack trace of the root cause: the JDK only hands out whole
+ * traces, so this copy grows with the depth of the stack the exception was thrown from, and fills in the trace if no
+ * one read it before.  Construct the recorder with zero frames to avoid it.
+ * <p/>
+ * Synchronous handlers are attributed to the dispatch in progress on their thread.  Asynchronous handlers run after
+ * their dispatch has ended and are not part of its summary.  This class is thread safe.
+ */
+public final class ExceptionRecorder implements DispatchListener
+{
+   /**
+    * Messages longer than this are truncated.
+    */
+   public static final int MAX_MESSAGE_LENGTH = 256;
+
+   /**
+    * Causes beyond this depth are not recorded, which also ends cyclic cause chains.
+    */
+   public static final int MAX_CAUSES = 8;
+
+   private static final String[] NO_HANDLERS = new String[0];
+
+   private static final StackTraceElement[] NO_FRAMES = new StackTraceElement[0];
+
+   private static final Comparator<ExceptionSummary> SEQUENCE_ORDER = new Comparator<ExceptionSummary>()
+   {
+      public int compare(ExceptionSummary s1, ExceptionSummary s2)
+      {
+         return s1.getSequence() < s2.getSequence() ? -1 : (s1.getSequence() == s2.getSequence() ? 0 : 1);
+      }
+   };
+
+   private final AtomicReferenceArray<ExceptionSummary> slots;
+   private final int mask;
+   private final int maxFrames;
+   private final AtomicLong sequence;
+   private final String[] handlerNames;
+   private final ThreadLocal<DispatchTrace> currentTrace;
+
+   /**
+    * Sole constructor.
+    *
+    * @param capacity  number of summaries kept, rounded up to a power of two
+    * @param maxFrames number of stack frames kept per summary
+    * @param handlers  all handlers, named in summaries by bean class and method
+    * @throws IllegalArgumentException if capacity is less than one or greater than 2<sup>30</sup>, or maxFrames is
+    *                                  negative
+    */
+   public ExceptionRecorder(final int capacity, final int maxFrames, final Collection<HandlerMethod> handlers)
+   {
+      if (capacity < 1 || capacity > 1 << 30)
+      {
+         throw new IllegalArgumentException("Invalid recorder capacity: " + capacity);
+      }
+      if (maxFrames < 0)
+      {
+         throw new IllegalArgumentException("Invalid number of recorded frames: " + maxFrames);
+      }
+
+      final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+
+      this.slots = new AtomicReferenceArray<ExceptionSummary>(size);
+      this.mask = size - 1;
+      this.maxFrames = maxFrames;
+      this.sequence = new AtomicLong();
+      int maxOrdinal = -1;
+      for (HandlerMethod<?> handler : handlers)
+      {
+         maxOrdinal = Math.max(maxOrdinal, handler.getOrdinal());
+      }
+
+      this.handlerNames = new String[maxOrdinal + 1];
+      for (HandlerMethod<?> handler : handlers)
+      {
+         final String className = handler.getBeanClass().getName();
+         this.handlerNames[handler.getOrdinal()] = handler.getJavaMethod() != null ?
+               className + "#" + handler.getJavaMethod().getName() : className;
+      }
+      this.currentTrace = new ThreadLocal<DispatchTrace>();
+   }
+
+   public void dispatchStarted(Throwable exception, Set<Annotation> qualifiers)
+   {
+      this.currentTrace.set(new DispatchTrace(this.currentTrace.get()));
+   }
+
+   public void dispatchEnded(Throwable exception, Set<Annotation> qualifiers, int causeDepth,
+                             DispatchOutcome outcome, long durationNanos)
+   {
+      final DispatchTrace trace = this.currentTrace.get();
+      String[] handlers = NO_HANDLERS;
+
+      if (trace != null)
+      {
+         handlers = trace.getHandlerNames(this.handlerNames);
+         if (trace.parent != null)
+         {
+            this.currentTrace.set(trace.parent);
+         }
+         else
+         {
+            this.currentTrace.remove();
+         }
+      }
+
+      this.record(exception, qualifiers, handlers, outcome, durationNanos);
+   }
+
+   public void handlerInvoked(HandlerMethod<?> handler, Throwable exception, long durationNanos, boolean failed)
+   {
+      final DispatchTrace trace = this.currentTrace.get();
+
+      if (trace != null)
+      {
+         trace.add(handler.getOrdinal());
+      }
+   }
+
+   /**
+    * Records a dispatch, overwriting the oldest summary if the buffer is full.
+    *
+    * @param exception     dispatched exception
+    * @param qualifiers    qualifiers of the dispatch
+    * @param handlers      names of the handlers invoked
+    * @param outcome       outcome of the dispatch
+    * @param durationNanos duration of the dispatch, in nanoseconds
+    */
+   void record(Throwable exception, Set<Annotation> qualifiers, String[] handlers, DispatchOutcome outcome,
+               long durationNanos)
+   {
+      int causeCount = 0;
+      for (Throwable t = exception; t != null && causeCount < MAX_CAUSES; t = t.getCause())
+      {
+         causeCount++;
+      }
+
+      final String[] causeTypes = new String[causeCount];
+      Throwable rootCause = exception;
+      for (int i = 0; i < causeCount; i++)
+      {
+         if (i > 0)
+         {
+            rootCause = rootCause.getCause();
+         }
+         causeTypes[i] = rootCause.getClass().getName();
+      }
+
+      StackTraceElement[] frames = NO_FRAMES;
+      if (this.maxFrames > 0)
+      {
+         final StackTraceElement[] trace = rootCause.getStackTrace();
+         frames = new StackTraceElement[Math.min(this.maxFrames, trace.length)];
+         System.arraycopy(trace, 0, frames, 0, frames.length);
+      }
+
+      final String[] qualifierNames = new String[qualifiers.size()];
+      int i = 0;
+      for (Annotation qualifier : qualifiers)
+      {
+         qualifierNames[i++] = qualifier.annotationType().getName();
+      }
+
+      final long seq = this.sequence.getAndIncrement();
+
+      this.slots.set((int) seq & this.mask, new ExceptionSummary(seq, System.currentTimeMillis(),
+            Thread.currentThread().getName(), causeTypes,
+            truncate(exception.getMessage()), rootCause == exception ? null : truncate(rootCause.getMessage()), frames,
+            qualifierNames, handlers, outcome, durationNanos));
+   }
+
+   /**
+    * Obtains the recorded summaries, oldest first.  Dispatches ending while the snapshot is taken may or may not be
+    * included.
+    *
+    * @return immutable list of at most {@link #getCapacity()} summaries
+    */
+   public List<ExceptionSummary> snapshot()
+   {
+      final List<ExceptionSummary> summaries = new ArrayList<ExceptionSummary>(this.slots.length());
+
+      for (int i = 0; i < this.slots.length(); i++)
+      {
+         final ExceptionSummary summary = this.slots.get(i);
+         if (summary != null)
+         {
+            summaries.add(summary);
+         }
+      }
+
+      Collections.sort(summaries, SEQUENCE_ORDER);
+      return Collections.unmodifiableList(summaries);
+   }
+
+   /**
+    * Writes a {@link #snapshot()} as text, oldest dispatch first, for a post-mortem dump.
+    *
+    * @param out destination of the dump
+    * @throws IOException if writing to out fails
+    */
+   public void export(Appendable out) throws IOException
+   {
+      final List<ExceptionSummary> summaries = this.snapshot();
+
+      out.append(String.valueOf(summaries.size())).append(" of ").append(String.valueOf(this.getRecordedCount()))
+            .append(" dispatches recorded\n");
+      for (ExceptionSummary summary : summaries)
+      {
+         out.append(summary.toString()).append('\n');
+      }
+   }
+
+   /**
+    * Obtains the number of summaries kept.
+    */
+   public int getCapacity()
+   {
+      return this.slots.length();
+   }
+
+   /**
+    * Obtains the number of dispatches recorded since creation or the last {@link #clear()}, including overwritten
+    * ones.
+    */
+   public long getRecordedCount()
+   {
+      return this.sequence.get();
+   }
+
+   /**
+    * Discards all summaries.  Dispatches ending concurrently may be kept.
+    */
+   public void clear()
+   {
+      for (int i = 0; i < this.slots.length(); i++)
+      {
+         this.slots.set(i, null);
+      }
+      this.sequence.set(0);
+   }
+
+   private static String truncate(String message)
+   {
+      return message == null || message.length() <= MAX_MESSAGE_LENGTH ? message :
+            message.substring(0, MAX_MESSAGE_LENGTH);
+   }
+
+   /**
+    * Handlers invoked so far by a dispatch in progress, linked to the dispatch it is nested in, if any.
+    */
+   private static final class DispatchTrace
+   {
+      private final DispatchTrace parent;
+      private int[] ordinals;
+      private int count;
+
+      DispatchTrace(DispatchTrace parent)
+      {
+         this.parent = parent;
+      }
+
+      void add(int ordinal)
+      {
+         if (this.ordinals == null)
+         {
+            this.ordinals = new int[4];
+         }
+         else if (this.count == this.ordinals.length)
+         {
+            final int[] grown = new int[this.count * 2];
+            System.arraycopy(this.ordinals, 0, grown, 0, this.count);
+            this.ordinals = grown;
+         }
+         this.ordinals[this.count++] = ordinal;
+      }
+
+      String[] getHandlerNames(String[] names)
+      {
+         if (this.count == 0)
+         {
+            return NO_HANDLERS;
+         }
+
+         final String[] handlerNames = new String[this.count];
+         for (int i = 0; i < this.count; i++)
+         {
+            final int ordinal = this.ordinals[i];
+            handlerNames[i] = ordinal >= 0 && ordinal < names.length ? names[ordinal] : "#" + ordinal;
+         }
+         return handlerNames;
+      }
+   }
+}
@@ -0,0 +1,174 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compact record of a single dispatch, kept by an {@link ExceptionRecorder}.  Exceptions, qualifiers and handlers are
+ * referenced by name only, so a summary keeps neither the exception object graph nor any class loader alive.  This
+ * class is immutable.
+ */
+public final class ExceptionSummary
+{
+   private final long sequence;
+   private final long timestamp;
+   private final String threadName;
+   private final List<String> causeTypes;
+   private final String message;
+   private final String rootCauseMessage;
+   private final List<StackTraceElement> rootCauseFrames;
+   private final List<String> qualifiers;
+   private final List<String> handlers;
+   private final DispatchOutcome outcome;
+   private final long durationNanos;
+
+   ExceptionSummary(long sequence, long timestamp, String threadName, String[] causeTypes, String message,
+                    String rootCauseMessage, StackTraceElement[] rootCauseFrames, String[] qualifiers,
+                    String[] handlers, DispatchOutcome outcome, long durationNanos)
+   {
+      this.sequence = sequence;
+      this.timestamp = timestamp;
+      this.threadName = threadName;
+      this.causeTypes = Collections.unmodifiableList(Arrays.asList(causeTypes));
+      this.message = message;
+      this.rootCauseMessage = rootCauseMessage;
+      this.rootCauseFrames = Collections.unmodifiableList(Arrays.asList(rootCauseFrames));
+      this.qualifiers = Collections.unmodifiableList(Arrays.asList(qualifiers));
+      this.handlers = Collections.unmodifiableList(Arrays.asList(handlers));
+      this.outcome = outcome;
+      this.durationNanos = durationNanos;
+   }
+
+   /**
+    * Obtains the position of the dispatch among all dispatches recorded, starting at zero.
+    */
+   public long getSequence()
+   {
+      return this.sequence;
+   }
+
+   /**
+    * Obtains the time the dispatch ended, in milliseconds since the epoch.
+    */
+   public long getTimestamp()
+   {
+      return this.timestamp;
+   }
+
+   public String getThreadName()
+   {
+      return this.threadName;
+   }
+
+   /**
+    * Obtains the class names of the cause chain, from the dispatched exception to its root cause.
+    */
+   public List<String> getCauseTypes()
+   {
+      return this.causeTypes;
+   }
+
+   /**
+    * Obtains the message of the dispatched exception, truncated if long.
+    */
+   public String getMessage()
+   {
+      return this.message;
+   }
+
+   /**
+    * Obtains the message of the root cause, truncated if long.
+    */
+   public String getRootCauseMessage()
+   {
+      return this.rootCauseMessage;
+   }
+
+   /**
+    * Obtains the top frames of the stack trace of the root cause.
+    */
+   public List<StackTraceElement> getRootCauseFrames()
+   {
+      return this.rootCauseFrames;
+   }
+
+   /**
+    * Obtains the annotation type names of the dispatch qualifiers.
+    */
+   public List<String> getQualifiers()
+   {
+      return this.qualifiers;
+   }
+
+   /**
+    * Obtains the synchronous handlers invoked, in invocation order, named by bean class and method.
+    */
+   public List<String> getHandlers()
+   {
+      return this.handlers;
+   }
+
+   public DispatchOutcome getOutcome()
+   {
+      return this.outcome;
+   }
+
+   public long getDurationNanos()
+   {
+      return this.durationNanos;
+   }
+
+   @Override
+   public String toString()
+   {
+      final StringBuilder sb = new StringBuilder(256);
+
+      sb.append('#').append(this.sequence).append(' ').append(new Date(this.timestamp))
+            .append(" [").append(this.threadName).append("] ").append(this.outcome)
+            .append(" in ").append(this.durationNanos).append(" ns");
+      if (!this.qualifiers.isEmpty())
+      {
+         sb.append(", qualifiers ").append(this.qualifiers);
+      }
+      for (int i = 0; i < this.causeTypes.size(); i++)
+      {
+         sb.append(i == 0 ? "\n  " : "\n  caused by ").append(this.causeTypes.get(i));
+         if (i == 0 && this.message != null)
+         {
+            sb.append(": ").append(this.message);
+         }
+         else if (i > 0 && i == this.causeTypes.size() - 1 && this.rootCauseMessage != null)
+         {
+            sb.append(": ").append(this.rootCauseMessage);
+         }
+      }
+      for (StackTraceElement frame : this.rootCauseFrames)
+      {
+         sb.append("\n    at ").append(frame);
+      }
+      for (String handler : this.handlers)
+      {
+         sb.append("\n  handled by ").append(handler);
+      }
+      return sb.toString();
+   }
+}
@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.seam.solder.reflection.HierarchyDiscovery;
+
+/**
+ * Index of exception type hierarchies.  The type closure and the hierarchy depth of a type are computed once, on first
+ * request, and shared afterwards.  This class is thread safe.
+ */
+public final class ExceptionTypeIndex
+{
+   private final ConcurrentMap<Type, TypeEntry> entries;
+
+   public ExceptionTypeIndex()
+   {
+      this.entries = new ConcurrentHashMap<Type, TypeEntry>();
+   }
+
+   /**
+    * Obtains the type closure of the given type, as computed by {@link HierarchyDiscovery}.
+    *
+    * @param type type to look up
+    * @return immutable list of the type and all its super types
+    */
+   public List<Type> getTypeClosure(Type type)
+   {
+      return this.getEntry(type).closure;
+   }
+
+   /**
+    * Obtains the depth of the given type in its class hierarchy.  {@link Object} has a depth of zero, each subclass
+    * adds one, so a more specific exception type always has a greater depth than any of its super classes.
+    *
+    * @param type type to look up
+    * @return depth of the type
+    */
+   public int getDepth(Type type)
+   {
+      return this.getEntry(type).depth;
+   }
+
+   /**
+    * Computes the depth of the given type without consulting an index.
+    *
+    * @param type type to compute the depth for
+    * @return depth of the type, see {@link #getDepth(java.lang.reflect.Type)}
+    */
+   public static int computeDepth(Type type)
+   {
+      Type rawType = type;
+
+      if (rawType instanceof ParameterizedType)
+      {
+         rawType = ((ParameterizedType) rawType).getRawType();
+      }
+
+      if (!(rawType instanceof Class))
+      {
+         return 0;
+      }
+
+      int depth = -1;
+      for (Class<?> c = (Class<?>) rawType; c != null; c = c.getSuperclass())
+      {
+         depth++;
+      }
+      return depth;
+   }
+
+   private TypeEntry getEntry(Type type)
+   {
+      final TypeEntry entry = this.entries.get(type);
+
+      if (entry != null)
+      {
+         return entry;
+      }
+
+      final TypeEntry newEntry = new TypeEntry(type);
+      final TypeEntry existingEntry = this.entries.putIfAbsent(type, newEntry);
+
+      return existingEntry != null ? existingEntry : newEntry;
+   }
+
+   /**
+    * Precomputed hierarchy information for a single type.  This class is immutable.
+    */
+   private static final class TypeEntry
+   {
+      private final List<Type> closure;
+      private final int depth;
+
+      TypeEntry(Type type)
+      {
+         final Type[] closureTypes = new HierarchyDiscovery(type).getTypeClosure().toArray(new Type[0]);
+
+         this.closure = Collections.unmodifiableList(Arrays.asList(closureTypes));
+         this.depth = computeDepth(type);
+      }
+   }
+}
@@ -0,0 +1,289 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Handler index generated at compile time by the Seam Catch annotation processor, which lists the types compiled in a
+ * module and the handler methods they declare.  Types listed in the index need not be inspected for handlers at boot,
+ * types missing from it are inspected as usual.
+ * <p/>
+ * The index records everything known about a handler at compile time.  Only the type and method are used to find the
+ * handler, its other properties are taken from the annotated method, as they may have been altered by portable
+ * extensions.  This class is not thread safe, it is filled and read while the container boots.
+ */
+public final class HandlerIndex
+{
+   /**
+    * Location of the handler index within a module, as written by the annotation processor.
+    */
+   public static final String INDEX_RESOURCE = "META-INF/org.jboss.seam.exception.control.handlers";
+
+   private static final String TYPE_RECORD = "type";
+   private static final String HANDLER_RECORD = "handler";
+
+   private final Set<String> types;
+   private final Map<String, List<Entry>> handlers;
+
+   public HandlerIndex()
+   {
+      this.types = new HashSet<String>();
+      this.handlers = new HashMap<String, List<Entry>>();
+   }
+
+   /**
+    * Reads all indexes visible to the given class loader.  An index which can not be read is ignored, so the types it
+    * lists are inspected at boot.
+    *
+    * @param classLoader class loader to find the indexes with
+    */
+   public void load(ClassLoader classLoader)
+   {
+      final Enumeration<URL> indexes;
+      try
+      {
+         indexes = classLoader.getResources(INDEX_RESOURCE);
+      }
+      catch (IOException e)
+      {
+         return;
+      }
+
+      while (indexes.hasMoreElements())
+      {
+         try
+         {
+            final Reader reader = new InputStreamReader(indexes.nextElement().openStream(), "UTF-8");
+            try
+            {
+               this.read(reader);
+            }
+            finally
+            {
+               reader.close();
+            }
+         }
+         catch (IOException e)
+         {
+            // Ignored, the types of this index are inspected instead
+         }
+         catch (IllegalArgumentException e)
+         {
+            // Ignored, the types of this index are inspected instead
+         }
+      }
+   }
+
+   /**
+    * Reads a single index and adds its records.  If the index is malformed, none of its records are added.
+    *
+    * @param reader index to read
+    * @throws IOException              if the index can not be read
+    * @throws IllegalArgumentException if a record is malformed
+    */
+   public void read(Reader reader) throws IOException
+   {
+      final BufferedReader lines = new BufferedReader(reader);
+      final List<String> readTypes = new ArrayList<String>();
+      final List<Entry> readHandlers = new ArrayList<Entry>();
+
+      String line;
+      while ((line = lines.readLine()) != null)
+      {
+         if (line.length() == 0 || line.startsWith("#"))
+         {
+            continue;
+         }
+
+         final String[] fields = line.split("\t", -1);
+
+         if (TYPE_RECORD.equals(fields[0]) && fields.length == 2)
+         {
+            readTypes.add(fields[1]);
+         }
+         else if (HANDLER_RECORD.equals(fields[0]) && fields.length == 9)
+         {
+            readHandlers.add(new Entry(fields));
+         }
+         else
+         {
+            throw new IllegalArgumentException("Malformed handler index record: " + line);
+         }
+      }
+
+      this.types.addAll(readTypes);
+      for (Entry handler : readHandlers)
+      {
+         this.types.add(handler.getTypeName());
+         if (!this.handlers.containsKey(handler.getTypeName()))
+         {
+            this.handlers.put(handler.getTypeName(), new ArrayList<Entry>());
+         }
+         this.handlers.get(handler.getTypeName()).add(handler);
+      }
+   }
+
+   /**
+    * Determines if the given type is listed in an index, in which case its handlers are known.
+    *
+    * @param typeName type name, as returned by {@link Class#getName()}
+    */
+   public boolean isIndexed(String typeName)
+   {
+      return this.types.contains(typeName);
+   }
+
+   /**
+    * Obtains the indexed handlers of the given type.
+    *
+    * @param typeName type name, as returned by {@link Class#getName()}
+    * @return handlers of the type, an empty list if there are none or the type is not indexed
+    */
+   public List<Entry> getHandlers(String typeName)
+   {
+      final List<Entry> typeHandlers = this.handlers.get(typeName);
+      return typeHandlers != null ? Collections.unmodifiableList(typeHandlers) : Collections.<Entry>emptyList();
+   }
+
+   /**
+    * Determines if the given method of the given type is an indexed handler.
+    *
+    * @param typeName type name, as returned by {@link Class#getName()}
+    * @param method   method to look up
+    */
+   public boolean isHandler(String typeName, Method method)
+   {
+      for (Entry handler : this.getHandlers(typeName))
+      {
+         if (handler.matches(method))
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Single handler method of an index.  This class is immutable.
+    */
+   public static final class Entry
+   {
+      private final String typeName;
+      private final String methodName;
+      private final List<String> parameterTypes;
+      private final int handlerParameterPosition;
+      private final String exceptionType;
+      private final int precedence;
+      private final TraversalMode traversalMode;
+      private final List<String> qualifierTypes;
+
+      Entry(String[] fields)
+      {
+         this.typeName = fields[1];
+         this.methodName = fields[2];
+         this.parameterTypes = split(fields[3]);
+         this.handlerParameterPosition = Integer.parseInt(fields[4]);
+         this.exceptionType = fields[5];
+         this.precedence = Integer.parseInt(fields[6]);
+         this.traversalMode = TraversalMode.valueOf(fields[7]);
+         this.qualifierTypes = split(fields[8]);
+      }
+
+      private static List<String> split(String field)
+      {
+         return field.length() == 0 ? Collections.<String>emptyList() :
+               Collections.unmodifiableList(Arrays.asList(field.split(",")));
+      }
+
+      /**
+       * Determines if the given method is the indexed method, that is if it has the same name and parameter types.
+       */
+      public boolean matches(Method method)
+      {
+         final Class<?>[] methodParameterTypes = method.getParameterTypes();
+
+         if (!this.methodName.equals(method.getName()) || methodParameterTypes.length != this.parameterTypes.size())
+         {
+            return false;
+         }
+         for (int i = 0; i < methodParameterTypes.length; i++)
+         {
+            if (!methodParameterTypes[i].getName().equals(this.parameterTypes.get(i)))
+            {
+               return false;
+            }
+         }
+         return true;
+      }
+
+      public String getTypeName()
+      {
+         return this.typeName;
+      }
+
+      public String getMethodName()
+      {
+         return this.methodName;
+      }
+
+      public List<String> getParameterTypes()
+      {
+         return this.parameterTypes;
+      }
+
+      public int getHandlerParameterPosition()
+      {
+         return this.handlerParameterPosition;
+      }
+
+      public String getExceptionType()
+      {
+         return this.exceptionType;
+      }
+
+      public int getPrecedence()
+      {
+         return this.precedence;
+      }
+
+      public TraversalMode getTraversalMode()
+      {
+         return this.traversalMode;
+      }
+
+      public List<String> getQualifierTypes()
+      {
+         return this.qualifierTypes;
+      }
+   }
+}
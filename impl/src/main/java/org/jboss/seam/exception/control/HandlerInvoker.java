@@ -0,0 +1,174 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.spi.AnnotatedMethod;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.InjectionPoint;
+
+import org.jboss.seam.solder.bean.Beans;
+
+/**
+ * Invoker for a handler method.  The injection points of all parameters besides the {@link Handles} parameter are
+ * created when the invoker is created and the method is made accessible once, so an invocation only obtains the
+ * parameter values and calls the method.  This class is immutable.
+ * <p/>
+ * Dependent objects created during an invocation belong to one {@link CreationalContext} per invocation, which the
+ * caller releases afterwards.  If neither the handler bean nor any parameter resolves to a dependent bean, no dependent
+ * objects can be created and the invoker does not need a context per invocation at all.
+ * <p/>
+ * The contextual reference of a normal scoped handler bean is a client proxy which stays valid for the lifetime of the
+ * application, so it is obtained once and used for all invocations.
+ */
+final class HandlerInvoker
+{
+   private final Method method;
+   private final InjectionPoint[] injectionPoints;
+   private final int handlerParameterPosition;
+   private final boolean dependentInstances;
+   private final CreationalContext<?> sharedContext;
+   private final Object handlerReference;
+
+   /**
+    * Sole constructor.
+    *
+    * @param handler                  handler method to invoke
+    * @param declaringBean            bean declaring the handler method
+    * @param handlerParameterPosition position of the {@link Handles} parameter
+    * @param bm                       active BeanManager
+    */
+   HandlerInvoker(final AnnotatedMethod<?> handler, final Bean<?> declaringBean, final int handlerParameterPosition,
+                  final BeanManager bm)
+   {
+      final List<InjectionPoint> parameters = Beans.createInjectionPoints(handler, declaringBean, bm);
+
+      this.handlerParameterPosition = handlerParameterPosition;
+      this.injectionPoints = parameters.toArray(new InjectionPoint[parameters.size()]);
+      this.injectionPoints[handlerParameterPosition] = null;
+
+      this.method = handler.getJavaMember();
+      this.method.setAccessible(true);
+
+      final boolean normalScopedHandler = isNormalScoped(declaringBean, bm);
+
+      this.dependentInstances = !normalScopedHandler || this.hasDependentParameter(bm);
+      this.sharedContext = this.dependentInstances ? null : bm.createCreationalContext(null);
+      this.handlerReference = normalScopedHandler ? bm.getReference(declaringBean, this.method.getDeclaringClass(),
+            bm.createCreationalContext(declaringBean)) : null;
+   }
+
+   private boolean hasDependentParameter(final BeanManager bm)
+   {
+      for (InjectionPoint ip : this.injectionPoints)
+      {
+         if (ip != null)
+         {
+            final Bean<?> parameterBean = bm.resolve(bm.getBeans(ip.getType(),
+                  ip.getQualifiers().toArray(new Annotation[ip.getQualifiers().size()])));
+
+            if (!isNormalScoped(parameterBean, bm))
+            {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   private static boolean isNormalScoped(final Bean<?> bean, final BeanManager bm)
+   {
+      return bean != null && bm.isNormalScope(bean.getScope());
+   }
+
+   /**
+    * Determines if invocations may create dependent objects, in which case each invocation needs its own {@link
+    * CreationalContext}.
+    */
+   boolean isDependentInstances()
+   {
+      return this.dependentInstances;
+   }
+
+   /**
+    * Obtains the context used by all invocations, only available if {@link #isDependentInstances()} is false.  No
+    * dependent objects are ever added to this context, so it never needs to be released.
+    */
+   CreationalContext<?> getSharedContext()
+   {
+      return this.sharedContext;
+   }
+
+   /**
+    * Obtains the client proxy of the handler bean if it is normal scoped.
+    *
+    * @return the contextual reference to invoke the handler on, or null if the handler bean is dependent and a new
+    *         instance is needed for every invocation
+    */
+   Object getHandlerReference()
+   {
+      return this.handlerReference;
+   }
+
+   /**
+    * Invokes the handler method.
+    *
+    * @param instance handler bean instance
+    * @param event    event passed to the {@link Handles} parameter
+    * @param ctx      context the other parameter values are created in
+    * @param bm       active BeanManager
+    * @throws RuntimeException wrapping any exception thrown by the handler method, as Solder's {@code
+    *                          InjectableMethod} did
+    */
+   void invoke(final Object instance, final CaughtException<?> event, final CreationalContext<?> ctx,
+               final BeanManager bm)
+   {
+      final Object[] parameterValues = new Object[this.injectionPoints.length];
+
+      for (int i = 0; i < parameterValues.length; i++)
+      {
+         if (i == this.handlerParameterPosition)
+         {
+            parameterValues[i] = event;
+         }
+         else
+         {
+            parameterValues[i] = bm.getInjectableReference(this.injectionPoints[i], ctx);
+         }
+      }
+
+      try
+      {
+         this.method.invoke(instance, parameterValues);
+      }
+      catch (IllegalAccessException e)
+      {
+         throw new IllegalStateException(String.format("Handler method %s is not accessible", this.method), e);
+      }
+      catch (InvocationTargetException e)
+      {
+         throw new RuntimeException(String.format("Exception invoking handler method %s", this.method), e.getCause());
+      }
+   }
+}
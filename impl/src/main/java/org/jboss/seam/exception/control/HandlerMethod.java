@@ -45,6 +45,17 @@ public interface HandlerMethod<T extends Throwable>
     */
    Set<Annotation> getQualifiers();
 
+   /**
+    * Obtains the mask of the handled event qualifiers, see {@link QualifierIndex}.
+    */
+   long getQualifierMask();
+
+   /**
+    * Obtains the ordinal of this handler.  Ordinals are assigned densely, starting at zero, in the order handlers are
+    * registered, so they may be used as an index instead of hashing the handler.
+    */
+   int getOrdinal();
+
    /**
     * Obtains the handled event type.
     */
@@ -58,6 +69,14 @@ public interface HandlerMethod<T extends Throwable>
     */
    void notify(CaughtException<T> event, BeanManager bm);
 
+   /**
+    * Resolves the declaring bean and prepares everything needed to invoke the handler, so the first notification does
+    * not pay for it.  Calling it more than once has no further effect.
+    *
+    * @param bm Active BeanManager
+    */
+   void prepare(BeanManager bm);
+
    /**
     * Obtains the direction of the traversal path the handler will be listening.
     */
@@ -68,6 +87,23 @@ public interface HandlerMethod<T extends Throwable>
     */
    int getPrecedence();
 
+   /**
+    * Determines if the handler is invoked asynchronously, see {@link Handles#async()}.
+    */
+   boolean isAsync();
+
+   /**
+    * Obtains the maximum number of concurrent asynchronous invocations, zero for no limit, see
+    * {@link Handles#maxConcurrency()}.
+    */
+   int getMaxConcurrency();
+
+   /**
+    * Obtains the window over which identical exceptions are coalesced in milliseconds, zero if they are not, see
+    * {@link Handles#coalesceWindow()}.
+    */
+   long getCoalesceWindow();
+
    /**
     * Obtains the actual method of the handler.
     */
@@ -77,4 +113,10 @@ public interface HandlerMethod<T extends Throwable>
     * Obtains the actual parameter defining this as a handler.
     */
    AnnotatedParameter<?> getHandlerParameter();
+
+   /**
+    * Obtains the key used to order handlers, see {@link ExceptionHandlerComparator#createSortKey(TraversalMode, int,
+    * int)}.
+    */
+   long getSortKey();
 }
@@ -33,7 +33,6 @@ import javax.enterprise.inject.spi.BeanManager;
 
 import org.jboss.seam.solder.bean.Beans;
 import org.jboss.seam.solder.literal.AnyLiteral;
-import org.jboss.seam.solder.reflection.annotated.InjectableMethod;
 
 /**
  * Implementation of {@link org.jboss.seam.exception.control.HandlerMethod}.
@@ -43,14 +42,21 @@ import org.jboss.seam.solder.reflection.annotated.InjectableMethod;
 public class HandlerMethodImpl<T extends Throwable> implements HandlerMethod<T>
 {
    private final Class<?> beanClass;
-   private Bean<?> bean;
+   private volatile Bean<?> bean;
    private final Set<Annotation> qualifiers;
+   private final long qualifierMask;
+   private final int ordinal;
    private final Type exceptionType;
    private final AnnotatedMethod<?> handler;
    private final TraversalMode traversalMode;
    private final int precedence;
+   private final boolean async;
+   private final int maxConcurrency;
+   private final long coalesceWindow;
    private final Method javaMethod;
    private final AnnotatedParameter<?> handlerParameter;
+   private final long sortKey;
+   private volatile HandlerInvoker invoker;
 
    /**
     * Determines if the given method is a handler by looking for the {@link Handles} annotation on a parameter.
@@ -97,12 +103,15 @@ public class HandlerMethodImpl<T extends Throwable> implements HandlerMethod<T>
    /**
     * Sole Constructor.
     *
-    * @param method found handler
-    * @param bm     active BeanManager
-    * @throws IllegalArgumentException if method is null, has no params or first param is not annotated with {@link
-    *                                  Handles}
+    * @param method         found handler
+    * @param bm             active BeanManager
+    * @param qualifierIndex index to register the handler qualifiers with
+    * @param ordinal        ordinal of the handler, see {@link #getOrdinal()}
+    * @throws IllegalArgumentException if method is null, has no params, first param is not annotated with {@link
+    *                                  Handles} or its maxConcurrency or coalesceWindow is negative
     */
-   public HandlerMethodImpl(final AnnotatedMethod<?> method, final BeanManager bm)
+   public HandlerMethodImpl(final AnnotatedMethod<?> method, final BeanManager bm,
+                            final QualifierIndex qualifierIndex, final int ordinal)
    {
       final Set<Annotation> tmpQualifiers = new HashSet<Annotation>();
       if (method == null || method.getParameters() == null || method.getParameters().size() == 0)
@@ -122,6 +131,14 @@ public class HandlerMethodImpl<T extends Throwable> implements HandlerMethod<T>
 
       this.traversalMode = this.handlerParameter.getAnnotation(Handles.class).during();
       this.precedence = this.handlerParameter.getAnnotation(Handles.class).precedence();
+      this.async = this.handlerParameter.getAnnotation(Handles.class).async();
+      this.maxConcurrency = this.handlerParameter.getAnnotation(Handles.class).maxConcurrency();
+      this.coalesceWindow = this.handlerParameter.getAnnotation(Handles.class).coalesceWindow();
+
+      if (this.maxConcurrency < 0 || this.coalesceWindow < 0)
+      {
+         throw new IllegalArgumentException("Handler maxConcurrency and coalesceWindow must not be negative");
+      }
       tmpQualifiers.addAll(Beans.getQualifiers(bm, this.handlerParameter.getAnnotations()));
 
       if (tmpQualifiers.isEmpty())
@@ -130,8 +147,12 @@ public class HandlerMethodImpl<T extends Throwable> implements HandlerMethod<T>
       }
 
       this.qualifiers = tmpQualifiers;
+      this.qualifierMask = qualifierIndex.register(tmpQualifiers);
+      this.ordinal = ordinal;
       this.beanClass = method.getJavaMember().getDeclaringClass();
       this.exceptionType = ((ParameterizedType) this.handlerParameter.getBaseType()).getActualTypeArguments()[0];
+      this.sortKey = ExceptionHandlerComparator.createSortKey(this.traversalMode,
+            ExceptionTypeIndex.computeDepth(this.exceptionType), this.precedence);
    }
 
    /**
@@ -144,14 +165,19 @@ public class HandlerMethodImpl<T extends Throwable> implements HandlerMethod<T>
 
    /**
     * {@inheritDoc}
+    * <p/>
+    * The catch extension resolves the bean once the deployment is validated.  Resolving it is idempotent, so no lock
+    * is taken if it is not resolved yet.
     */
-   public synchronized Bean<?> getBean(BeanManager bm)
+   public Bean<?> getBean(BeanManager bm)
    {
-      if (this.bean == null)
+      Bean<?> result = this.bean;
+      if (result == null)
       {
-         this.bean = bm.resolve(bm.getBeans(this.beanClass));
+         result = bm.resolve(bm.getBeans(this.beanClass));
+         this.bean = result;
       }
-      return this.bean;  //To change body of implemented methods use File | Settings | File Templates.
+      return result;
    }
 
    /**
@@ -162,6 +188,22 @@ public class HandlerMethodImpl<T extends Throwable> implements HandlerMethod<T>
       return Collections.unmodifiableSet(this.qualifiers);
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   public long getQualifierMask()
+   {
+      return this.qualifierMask;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public int getOrdinal()
+   {
+      return this.ordinal;
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -176,21 +218,52 @@ public class HandlerMethodImpl<T extends Throwable> implements HandlerMethod<T>
    @SuppressWarnings( { "unchecked" })
    public void notify(final CaughtException<T> event, final BeanManager bm)
    {
-      CreationalContext ctx = null;
-      try
+      final HandlerInvoker handlerInvoker = getInvoker(bm);
+      Object handlerInstance = handlerInvoker.getHandlerReference();
+
+      if (!handlerInvoker.isDependentInstances())
       {
-         ctx = bm.createCreationalContext(null);
-         Object handlerInstance = bm.getReference(getBean(bm), this.beanClass, ctx);
-         InjectableMethod im = new InjectableMethod(this.handler, getBean(bm), bm);
-         im.invoke(handlerInstance, ctx, new OutboundParameterValueRedefiner(event, bm, this));
+         handlerInvoker.invoke(handlerInstance, event, handlerInvoker.getSharedContext(), bm);
+         return;
       }
-      finally
+
+      final Bean<?> declaringBean = getBean(bm);
+      final CreationalContext ctx = bm.createCreationalContext(declaringBean);
+      try
       {
-         if (ctx != null)
+         if (handlerInstance == null)
          {
-            ctx.release();
+            handlerInstance = bm.getReference(declaringBean, this.beanClass, ctx);
          }
+         handlerInvoker.invoke(handlerInstance, event, ctx, bm);
+      }
+      finally
+      {
+         ctx.release();
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public void prepare(final BeanManager bm)
+   {
+      getInvoker(bm);
+   }
+
+   /**
+    * Obtains the invoker of this handler, creating it on first use.  Concurrent first calls may each create an
+    * invoker, they are equivalent and the last one published wins.
+    */
+   private HandlerInvoker getInvoker(final BeanManager bm)
+   {
+      HandlerInvoker result = this.invoker;
+      if (result == null)
+      {
+         result = new HandlerInvoker(this.handler, getBean(bm), this.handlerParameter.getPosition(), bm);
+         this.invoker = result;
       }
+      return result;
    }
 
    /**
@@ -209,6 +282,30 @@ public class HandlerMethodImpl<T extends Throwable> implements HandlerMethod<T>
       return this.precedence;
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   public boolean isAsync()
+   {
+      return this.async;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public int getMaxConcurrency()
+   {
+      return this.maxConcurrency;
+   }
+
+   /**
+    * {@inheritDoc}
+    */
+   public long getCoalesceWindow()
+   {
+      return this.coalesceWindow;
+   }
+
    /**
     * {@inheritDoc}
     */
@@ -222,6 +319,14 @@ public class HandlerMethodImpl<T extends Throwable> implements HandlerMethod<T>
       return this.handlerParameter;
    }
 
+   /**
+    * {@inheritDoc}
+    */
+   public long getSortKey()
+   {
+      return this.sortKey;
+   }
+
    @Override
    public boolean equals(Object o)
    {
@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jboss.seam.exception.control.CaughtException.ExceptionHandlingFlow;
+
+/**
+ * Invocation counters and latency of a single handler, see {@link CatchMetrics}.  The flow counters tell how the
+ * handler asked the dispatcher to continue, the default being {@link CaughtException#markHandled()}.  This class is
+ * thread safe.
+ */
+public final class HandlerMetrics
+{
+   private final HandlerMethod<?> handler;
+   private final AtomicLong invocationCount;
+   private final AtomicLong failureCount;
+   private final AtomicLongArray flowCounts;
+   private final LatencyHistogram latency;
+
+   HandlerMetrics(HandlerMethod<?> handler)
+   {
+      this.handler = handler;
+      this.invocationCount = new AtomicLong();
+      this.failureCount = new AtomicLong();
+      this.flowCounts = new AtomicLongArray(ExceptionHandlingFlow.values().length);
+      this.latency = new LatencyHistogram();
+   }
+
+   /**
+    * Records an invocation of the handler.
+    *
+    * @param nanos duration of the invocation
+    * @param flow  flow requested by the handler, null if it threw an exception
+    */
+   void record(final long nanos, final ExceptionHandlingFlow flow)
+   {
+      this.invocationCount.incrementAndGet();
+      this.latency.record(nanos);
+
+      if (flow == null)
+      {
+         this.failureCount.incrementAndGet();
+      }
+      else
+      {
+         this.flowCounts.incrementAndGet(flow.ordinal());
+      }
+   }
+
+   public HandlerMethod<?> getHandler()
+   {
+      return this.handler;
+   }
+
+   /**
+    * Obtains the number of invocations, including failed ones.
+    */
+   public long getInvocationCount()
+   {
+      return this.invocationCount.get();
+   }
+
+   /**
+    * Obtains the number of invocations which threw an exception.
+    */
+   public long getFailureCount()
+   {
+      return this.failureCount.get();
+   }
+
+   public long getHandledCount()
+   {
+      return this.flowCounts.get(ExceptionHandlingFlow.HANDLED.ordinal());
+   }
+
+   public long getMarkHandledCount()
+   {
+      return this.flowCounts.get(ExceptionHandlingFlow.MARK_HANDLED.ordinal());
+   }
+
+   public long getDropCauseCount()
+   {
+      return this.flowCounts.get(ExceptionHandlingFlow.DROP_CAUSE.ordinal());
+   }
+
+   public long getAbortCount()
+   {
+      return this.flowCounts.get(ExceptionHandlingFlow.ABORT.ordinal());
+   }
+
+   public long getRethrowCount()
+   {
+      return this.flowCounts.get(ExceptionHandlingFlow.RETHROW.ordinal());
+   }
+
+   /**
+    * Obtains the number of invocations which asked for another exception to be thrown, see
+    * {@link CaughtException#rethrow(Throwable)}.
+    */
+   public long getThrowCount()
+   {
+      return this.flowCounts.get(ExceptionHandlingFlow.THROW.ordinal());
+   }
+
+   /**
+    * Obtains the duration of the invocations in nanoseconds.
+    */
+   public LatencyHistogram getLatency()
+   {
+      return this.latency;
+   }
+
+   /**
+    * Discards all counters and the latency.
+    */
+   public void reset()
+   {
+      this.invocationCount.set(0);
+      this.failureCount.set(0);
+      for (int i = 0; i < this.flowCounts.length(); i++)
+      {
+         this.flowCounts.set(i, 0);
+      }
+      this.latency.reset();
+   }
+}
@@ -0,0 +1,177 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values, typically latencies in nanoseconds.  Values below eight are counted exactly,
+ * larger values in buckets of an eighth of their power of two, so a reported value is at most 12.5% above the
+ * recorded one.  Values of 2<sup>40</sup> and above share the last bucket, the exact maximum is kept separately.
+ * <p/>
+ * Recording takes a few atomic increments and never locks or allocates, so it is safe to call from any number of
+ * threads.  Reading while values are recorded gives a consistent enough, but not atomic, view.
+ */
+public final class LatencyHistogram
+{
+   private static final int SUB_BUCKET_BITS = 3;
+   private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+   private static final int MAX_EXPONENT = 40;
+   private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + 1;
+
+   private final AtomicLongArray counts;
+   private final AtomicLong count;
+   private final AtomicLong total;
+   private final AtomicLong max;
+
+   public LatencyHistogram()
+   {
+      this.counts = new AtomicLongArray(BUCKETS);
+      this.count = new AtomicLong();
+      this.total = new AtomicLong();
+      this.max = new AtomicLong();
+   }
+
+   /**
+    * Records a value.  Negative values are recorded as zero.
+    *
+    * @param value value to record
+    */
+   public void record(final long value)
+   {
+      final long v = value < 0 ? 0 : value;
+
+      this.counts.incrementAndGet(bucketOf(v));
+      this.count.incrementAndGet();
+      this.total.addAndGet(v);
+
+      long currentMax = this.max.get();
+      while (v > currentMax && !this.max.compareAndSet(currentMax, v))
+      {
+         currentMax = this.max.get();
+      }
+   }
+
+   /**
+    * Obtains the number of recorded values.
+    */
+   public long getCount()
+   {
+      return this.count.get();
+   }
+
+   /**
+    * Obtains the sum of all recorded values.
+    */
+   public long getTotal()
+   {
+      return this.total.get();
+   }
+
+   /**
+    * Obtains the largest recorded value, zero if none was recorded.
+    */
+   public long getMax()
+   {
+      return this.max.get();
+   }
+
+   /**
+    * Obtains the mean of the recorded values, zero if none was recorded.
+    */
+   public double getMean()
+   {
+      final long n = this.count.get();
+      return n == 0 ? 0 : (double) this.total.get() / n;
+   }
+
+   /**
+    * Obtains the value below or at which the given percentage of recorded values lie, as the highest value of its
+    * bucket but no more than the maximum.
+    *
+    * @param percentile percentage between 0 and 100
+    * @return value at the percentile, zero if no value was recorded
+    */
+   public long getValueAtPercentile(final double percentile)
+   {
+      long remaining = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * this.count.get());
+
+      if (remaining == 0)
+      {
+         remaining = 1;
+      }
+
+      for (int i = 0; i < BUCKETS; i++)
+      {
+         remaining -= this.counts.get(i);
+         if (remaining <= 0)
+         {
+            return Math.min(highestValueOf(i), this.max.get());
+         }
+      }
+      return this.max.get();
+   }
+
+   /**
+    * Discards all recorded values.  Values recorded concurrently may be partially discarded.
+    */
+   public void reset()
+   {
+      for (int i = 0; i < BUCKETS; i++)
+      {
+         this.counts.set(i, 0);
+      }
+      this.count.set(0);
+      this.total.set(0);
+      this.max.set(0);
+   }
+
+   static int bucketOf(final long value)
+   {
+      if (value < SUB_BUCKETS)
+      {
+         return (int) value;
+      }
+
+      final int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+      if (exponent == MAX_EXPONENT)
+      {
+         return BUCKETS - 1;
+      }
+
+      final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+   }
+
+   static long highestValueOf(final int bucket)
+   {
+      if (bucket < SUB_BUCKETS)
+      {
+         return bucket;
+      }
+      if (bucket == BUCKETS - 1)
+      {
+         return Long.MAX_VALUE;
+      }
+
+      final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+      final long subBucket = bucket % SUB_BUCKETS;
+      return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+   }
+}
@@ -26,7 +26,11 @@ import org.jboss.seam.solder.reflection.annotated.ParameterValueRedefiner;
 /**
  * Redefiner allowing to inject a non contextual instance of {@link CaughtException} into the first parameter. This
  * class is immutable.
+ *
+ * @deprecated handlers are no longer invoked through Solder's {@code InjectableMethod}, the catch extension does not
+ *             use this class anymore.  It is kept for code invoking handler methods itself.
  */
+@Deprecated
 public class OutboundParameterValueRedefiner implements ParameterValueRedefiner
 {
    final private CaughtException<?> event;
@@ -0,0 +1,119 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control;
+
+import java.lang.annotation.Annotation;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.seam.solder.literal.AnyLiteral;
+
+/**
+ * Index of the qualifiers used by handlers.  Each qualifier is assigned a bit when first registered, so a set of
+ * qualifiers can be represented by a mask and two sets can be matched with a single AND instead of comparing
+ * annotations.  {@link javax.enterprise.inject.Any} always has the lowest bit.
+ * <p/>
+ * A mask has room for 62 qualifiers besides {@link javax.enterprise.inject.Any}.  Any further qualifiers share the
+ * highest bit, {@link #OVERFLOW_MASK}, and masks having that bit in common need to be compared qualifier by qualifier.
+ * <p/>
+ * Qualifiers are registered while handlers are found, lookups are thread safe.
+ */
+public final class QualifierIndex
+{
+   public static final long ANY_MASK = 1L;
+
+   public static final long OVERFLOW_MASK = 1L << 63;
+
+   private final ConcurrentMap<Annotation, Long> masks;
+
+   private int nextBit;
+
+   public QualifierIndex()
+   {
+      this.masks = new ConcurrentHashMap<Annotation, Long>();
+      this.masks.put(AnyLiteral.INSTANCE, ANY_MASK);
+      this.nextBit = 1;
+   }
+
+   /**
+    * Registers the given qualifiers, if not yet registered, and obtains their mask.
+    *
+    * @param qualifiers qualifiers to register
+    * @return mask of the given qualifiers
+    */
+   public synchronized long register(final Collection<? extends Annotation> qualifiers)
+   {
+      long mask = 0;
+
+      for (Annotation qualifier : qualifiers)
+      {
+         Long qualifierMask = this.masks.get(qualifier);
+         if (qualifierMask == null)
+         {
+            qualifierMask = this.nextBit < 63 ? 1L << this.nextBit++ : OVERFLOW_MASK;
+            this.masks.put(qualifier, qualifierMask);
+         }
+         mask |= qualifierMask;
+      }
+
+      return mask;
+   }
+
+   /**
+    * Obtains the mask of the given qualifiers.  Qualifiers which have never been registered are not used by any
+    * handler, they are left out of the mask.
+    *
+    * @param qualifiers qualifiers to look up
+    * @return mask of the given qualifiers
+    */
+   public long getMask(final Collection<? extends Annotation> qualifiers)
+   {
+      if (qualifiers.isEmpty())
+      {
+         return 0;
+      }
+
+      long mask = 0;
+
+      for (Annotation qualifier : qualifiers)
+      {
+         final Long qualifierMask = this.masks.get(qualifier);
+         if (qualifierMask != null)
+         {
+            mask |= qualifierMask;
+         }
+      }
+
+      return mask;
+   }
+
+   /**
+    * Determines if a handler with the given qualifiers is to be notified of an exception with the given qualifiers,
+    * that is if the handler has the {@link javax.enterprise.inject.Any} qualifier or the masks have a qualifier in
+    * common.  Masks only having {@link #OVERFLOW_MASK} in common do not match, their qualifiers need to be compared.
+    *
+    * @param handlerMask   mask of the handler qualifiers
+    * @param exceptionMask mask of the qualifiers the exception is handled with
+    * @return true if the masks match
+    */
+   public static boolean matches(final long handlerMask, final long exceptionMask)
+   {
+      return (handlerMask & ANY_MASK) != 0 || (handlerMask & exceptionMask & ~OVERFLOW_MASK) != 0;
+   }
+}
@@ -20,33 +20,55 @@ package org.jboss.seam.exception.control.extension;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterBeanDiscovery;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
 import javax.enterprise.inject.spi.AnnotatedMethod;
 import javax.enterprise.inject.spi.AnnotatedParameter;
 import javax.enterprise.inject.spi.AnnotatedType;
 import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.BeforeBeanDiscovery;
+import javax.enterprise.inject.spi.BeforeShutdown;
 import javax.enterprise.inject.spi.Decorator;
 import javax.enterprise.inject.spi.Extension;
 import javax.enterprise.inject.spi.Interceptor;
+import javax.enterprise.inject.spi.ProcessAnnotatedType;
 import javax.enterprise.inject.spi.ProcessBean;
 
+import org.jboss.seam.exception.control.AsyncHandlerExecutor;
+import org.jboss.seam.exception.control.CatchMetrics;
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.CoalescedExceptionReporter;
+import org.jboss.seam.exception.control.DispatchListener;
+import org.jboss.seam.exception.control.ExceptionCoalescer;
 import org.jboss.seam.exception.control.ExceptionHandlerComparator;
+import org.jboss.seam.exception.control.ExceptionRecorder;
+import org.jboss.seam.exception.control.ExceptionStack;
+import org.jboss.seam.exception.control.ExceptionTypeIndex;
+import org.jboss.seam.exception.control.HandlerIndex;
 import org.jboss.seam.exception.control.HandlerMethod;
 import org.jboss.seam.exception.control.HandlerMethodImpl;
+import org.jboss.seam.exception.control.HandlerRegistry;
+import org.jboss.seam.exception.control.Handles;
 import org.jboss.seam.exception.control.HandlesExceptions;
+import org.jboss.seam.exception.control.QualifierIndex;
 import org.jboss.seam.exception.control.TraversalMode;
-import org.jboss.seam.solder.literal.AnyLiteral;
+import org.jboss.seam.exception.control.management.CatchManagement;
 import org.jboss.seam.solder.reflection.AnnotationInspector;
-import org.jboss.seam.solder.reflection.HierarchyDiscovery;
 
 /**
  * CDI extension to find handlers at startup.
@@ -54,17 +76,260 @@ import org.jboss.seam.solder.reflection.HierarchyDiscovery;
 @SuppressWarnings( { "unchecked", "WebBeanObservesInspection" })
 public class CatchExtension implements Extension
 {
-   private final Map<? super Type, Collection<HandlerMethod>> allHandlers;
+   /**
+    * System property enabling {@link #setEventReuseEnabled(boolean)} for all deployments.
+    */
+   public static final String REUSE_EVENTS_PROPERTY = "org.jboss.seam.exception.control.reuseEvents";
+
+   /**
+    * System property enabling {@link #setMetricsEnabled(boolean)} for all deployments.
+    */
+   public static final String METRICS_PROPERTY = "org.jboss.seam.exception.control.metrics";
+
+   /**
+    * System property which, if false, keeps the MBeans of {@link CatchManagement} from being registered.
+    */
+   public static final String JMX_PROPERTY = "org.jboss.seam.exception.control.jmx";
+
+   /**
+    * System property disabling the use of handler indexes, so all types are inspected for handlers.  Needed if
+    * portable extensions add handler methods to handler types compiled with the annotation processor.
+    */
+   public static final String IGNORE_HANDLER_INDEX_PROPERTY = "org.jboss.seam.exception.control.ignoreHandlerIndex";
+
+   /**
+    * System property setting the number of threads of the default {@link AsyncHandlerExecutor}, 2 if not set.
+    */
+   public static final String ASYNC_THREADS_PROPERTY = "org.jboss.seam.exception.control.async.threads";
+
+   /**
+    * System property setting the queue capacity of the default {@link AsyncHandlerExecutor}, 1000 if not set.
+    */
+   public static final String ASYNC_QUEUE_CAPACITY_PROPERTY = "org.jboss.seam.exception.control.async.queueCapacity";
+
+   /**
+    * System property setting the {@link AsyncHandlerExecutor.RejectionPolicy} of the default executor, DISCARD if not
+    * set.
+    */
+   public static final String ASYNC_REJECTION_POLICY_PROPERTY =
+         "org.jboss.seam.exception.control.async.rejectionPolicy";
+
+   /**
+    * System property setting the maximum number of coalescing windows kept, see {@link ExceptionCoalescer}, 1024 if not
+    * set.
+    */
+   public static final String COALESCE_MAX_WINDOWS_PROPERTY = "org.jboss.seam.exception.control.coalesce.maxWindows";
+
+   /**
+    * System property setting the capacity of an {@link ExceptionRecorder} recording the dispatches of every
+    * deployment, whether or not a dispatch listener is installed.  No recorder is created if not set.
+    */
+   public static final String RECORDER_CAPACITY_PROPERTY = "org.jboss.seam.exception.control.recorder.capacity";
+
+   /**
+    * System property setting the number of stack frames an {@link ExceptionRecorder} keeps per exception, 8 if not set.
+    * Zero spares the recorder copying the stack trace of every exception.
+    */
+   public static final String RECORDER_FRAMES_PROPERTY = "org.jboss.seam.exception.control.recorder.frames";
+
+   private static final ExceptionHandlerComparator HANDLER_COMPARATOR = new ExceptionHandlerComparator();
+
+   /**
+    * Handlers by exception type while the container boots, replaced by {@link #registry} once the deployment is
+    * validated.
+    */
+   private Map<Type, Collection<HandlerMethod>> allHandlers;
+
+   /**
+    * Frozen handlers, published once the deployment is validated.
+    */
+   private volatile HandlerRegistry registry;
+
+   /**
+    * Already resolved and ordered handler lists by exception type, see {@link DispatchPlans}.
+    */
+   private final ConcurrentMap<Type, DispatchPlans> dispatchPlans;
+
+   /**
+    * Union of the qualifier masks of all handlers applicable to an exception type, in either traversal mode.
+    */
+   private final ConcurrentMap<Class<?>, Long> handlerQualifierMasks;
+
+   private final AtomicLong unhandledFastPathCount;
+
+   /**
+    * Dispatch plan lookups served from {@link #dispatchPlans} and plans computed, both only counted while metrics are
+    * enabled, so the hit rate is consistent.
+    */
+   private final AtomicLong planCacheHitCount;
+
+   private final AtomicLong planCacheMissCount;
+
+   private final ExceptionTypeIndex typeIndex;
+
+   private final QualifierIndex qualifierIndex;
+
+   private final HandlerIndex handlerIndex;
+
+   private final ExceptionCoalescer coalescer;
+
+   /**
+    * Types found to declare handlers, until their beans are known.
+    */
+   private final Set<Class<?>> handlerTypeCandidates;
+
+   /**
+    * Annotated types of the beans declaring handlers, until the handlers are registered.
+    */
+   private final List<AnnotatedType<?>> handlerTypes;
+
+   /**
+    * Annotation types already known to be, or not to be, stereotypes of handler types.
+    */
+   private final Map<Class<? extends Annotation>, Boolean> handlerStereotypes;
+
+   /**
+    * Number of registered handlers, which is also the ordinal of the next handler.
+    */
+   private int handlerCount;
+
+   /**
+    * Until the deployment is validated it is unknown whether the exception stack is observed, so assume it is.
+    */
+   private volatile boolean exceptionStackObserved = true;
+
+   private volatile boolean eventReuseEnabled = Boolean.getBoolean(REUSE_EVENTS_PROPERTY);
+
+   private volatile boolean metricsEnabled = Boolean.getBoolean(METRICS_PROPERTY);
+
+   private volatile CatchMetrics metrics;
+
+   private volatile DispatchListener dispatchListener;
+
+   private volatile ExceptionRecorder recorder;
+
+   private volatile CatchManagement management;
+
+   /**
+    * Whether any handler is asynchronous, known once the deployment is validated.
+    */
+   private volatile boolean asyncHandlers;
+
+   private volatile AsyncHandlerExecutor asyncExecutor;
+
+   private volatile CoalescedExceptionReporter coalescedExceptionReporter;
 
    public CatchExtension()
    {
+      this.typeIndex = new ExceptionTypeIndex();
       this.allHandlers = new HashMap<Type, Collection<HandlerMethod>>();
+      this.dispatchPlans = new ConcurrentHashMap<Type, DispatchPlans>();
+      this.handlerQualifierMasks = new ConcurrentHashMap<Class<?>, Long>();
+      this.qualifierIndex = new QualifierIndex();
+      this.handlerIndex = new HandlerIndex();
+      this.coalescer = new ExceptionCoalescer(Integer.getInteger(COALESCE_MAX_WINDOWS_PROPERTY, 1024));
+      this.handlerTypeCandidates = new HashSet<Class<?>>();
+      this.handlerTypes = new ArrayList<AnnotatedType<?>>();
+      this.handlerStereotypes = new HashMap<Class<? extends Annotation>, Boolean>();
+      this.unhandledFastPathCount = new AtomicLong();
+      this.planCacheHitCount = new AtomicLong();
+      this.planCacheMissCount = new AtomicLong();
    }
 
    /**
-    * Listener to ProcessBean event to locate handlers.
+    * Listener to BeforeBeanDiscovery event to load the handler indexes generated at compile time, see {@link
+    * HandlerIndex}.  Loading is skipped if the {@link #IGNORE_HANDLER_INDEX_PROPERTY} system property is true.
+    *
+    * @param bbd Event from CDI SPI
+    */
+   public void loadHandlerIndex(@Observes final BeforeBeanDiscovery bbd)
+   {
+      if (Boolean.getBoolean(IGNORE_HANDLER_INDEX_PROPERTY))
+      {
+         return;
+      }
+
+      final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+      this.handlerIndex.load(contextClassLoader != null ? contextClassLoader : CatchExtension.class.getClassLoader());
+   }
+
+   /**
+    * Listener to ProcessAnnotatedType event to record the types which declare handlers, that is types annotated with
+    * {@link HandlesExceptions}, directly or through a stereotype.  The annotated type decides, not the {@link
+    * HandlerIndex}, as portable extensions may have added or removed these annotations.  Interceptors and decorators
+    * never declare handlers.  Only the annotations of the type itself are inspected, and stereotypes once each, so this
+    * is cheap for the types which do not declare handlers.
+    *
+    * @param pat Event from CDI SPI
+    * @param bm  Activated Bean Manager
+    */
+   public void findHandlerTypes(@Observes final ProcessAnnotatedType<?> pat, final BeanManager bm)
+   {
+      final AnnotatedType<?> type = pat.getAnnotatedType();
+
+      if (this.isHandlerType(type, bm) && !type.isAnnotationPresent(javax.interceptor.Interceptor.class)
+            && !type.isAnnotationPresent(javax.decorator.Decorator.class))
+      {
+         this.handlerTypeCandidates.add(type.getJavaClass());
+      }
+   }
+
+   private boolean isHandlerType(final AnnotatedType<?> type, final BeanManager bm)
+   {
+      if (type.isAnnotationPresent(HandlesExceptions.class))
+      {
+         return true;
+      }
+
+      for (Annotation annotation : type.getAnnotations())
+      {
+         final Class<? extends Annotation> annotationType = annotation.annotationType();
+         Boolean handlerStereotype = this.handlerStereotypes.get(annotationType);
+
+         if (handlerStereotype == null)
+         {
+            handlerStereotype = bm.isStereotype(annotationType)
+                  && AnnotationInspector.isAnnotationPresent(annotationType, HandlesExceptions.class, bm);
+            this.handlerStereotypes.put(annotationType, handlerStereotype);
+         }
+         if (handlerStereotype)
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Listener to ProcessBean event to record the beans declaring handlers.  Only the beans of types recorded by {@link
+    * #findHandlerTypes(ProcessAnnotatedType, BeanManager)} are kept, their handlers are registered by {@link
+    * #registerHandlers(AfterBeanDiscovery, BeanManager)}.
     *
     * @param pmb Event from CDI SPI
+    */
+   public void findHandlers(@Observes final ProcessBean<?> pmb)
+   {
+      if (!(pmb.getAnnotated() instanceof AnnotatedType) || pmb.getBean() instanceof Interceptor ||
+            pmb.getBean() instanceof Decorator)
+      {
+         return;
+      }
+
+      final AnnotatedType<?> type = (AnnotatedType<?>) pmb.getAnnotated();
+
+      if (this.handlerTypeCandidates.contains(type.getJavaClass()))
+      {
+         this.handlerTypes.add(type);
+      }
+   }
+
+   /**
+    * Listener to AfterBeanDiscovery event to register the handlers of all beans found by {@link
+    * #findHandlers(ProcessBean)}.  The handlers of types listed with handlers in a {@link HandlerIndex} are taken from
+    * the index, the methods of other types are inspected.  A type listed without handlers is inspected as well, as it
+    * only gets here if a portable extension turned it into a handler type.
+    *
+    * @param abd Event from CDI SPI
     * @param bm  Activated Bean Manager
     * @throws TypeNotPresentException if any of the actual type arguments refers to a non-existent type declaration when
     *                                 trying to obtain the actual type arguments from a {@link ParameterizedType}
@@ -73,89 +338,626 @@ public class CatchExtension implements Extension
     *                                 instantiated for any reason when trying to obtain the actual type arguments from a
     *                                 {@link ParameterizedType}
     */
-   public void findHandlers(@Observes final ProcessBean<?> pmb, final BeanManager bm)
+   public void registerHandlers(@Observes final AfterBeanDiscovery abd, final BeanManager bm)
    {
-      if (!(pmb.getAnnotated() instanceof AnnotatedType) || pmb.getBean() instanceof Interceptor ||
-            pmb.getBean() instanceof Decorator)
+      for (AnnotatedType<?> type : this.handlerTypes)
       {
-         return;
+         final String typeName = type.getJavaClass().getName();
+         final boolean indexed = !this.handlerIndex.getHandlers(typeName).isEmpty();
+
+         for (AnnotatedMethod<?> method : type.getMethods())
+         {
+            if ((!indexed || this.handlerIndex.isHandler(typeName, method.getJavaMember()))
+                  && HandlerMethodImpl.isHandler(method))
+            {
+               this.registerHandler(abd, method, bm);
+            }
+         }
       }
 
-      final AnnotatedType type = (AnnotatedType) pmb.getAnnotated();
+      this.handlerTypeCandidates.clear();
+      this.handlerTypes.clear();
+      this.handlerStereotypes.clear();
+   }
 
-      if (AnnotationInspector.isAnnotationPresent(type, HandlesExceptions.class, bm))
+   private void registerHandler(final AfterBeanDiscovery abd, final AnnotatedMethod method, final BeanManager bm)
+   {
+      final AnnotatedParameter<?> param = HandlerMethodImpl.findHandlerParameter(method);
+      if (method.getJavaMember().getExceptionTypes().length != 0)
       {
-         final Set<AnnotatedMethod> methods = type.getMethods();
+         abd.addDefinitionError(new IllegalArgumentException(
+               String.format("Handler method %s must not throw exceptions", method.getJavaMember())));
+      }
+      final Class exceptionType = (Class) ((ParameterizedType) param.getBaseType()).getActualTypeArguments()[0];
 
-         for (AnnotatedMethod method : methods)
+      final HandlerMethod handler = new HandlerMethodImpl(method, bm, this.qualifierIndex, this.handlerCount);
+
+      if (this.allHandlers.containsKey(exceptionType))
+      {
+         if (this.allHandlers.get(exceptionType).add(handler))
          {
-            if (HandlerMethodImpl.isHandler(method))
-            {
-               final AnnotatedParameter<?> param = HandlerMethodImpl.findHandlerParameter(method);
-               if (method.getJavaMember().getExceptionTypes().length != 0)
-               {
-                  pmb.addDefinitionError(new IllegalArgumentException(
-                        String.format("Handler method %s must not throw exceptions", method.getJavaMember())));
-               }
-               final Class exceptionType = (Class) ((ParameterizedType) param.getBaseType()).getActualTypeArguments()[0];
+            this.handlerCount++;
+         }
+      }
+      else
+      {
+         this.allHandlers.put(exceptionType, new HashSet<HandlerMethod>(Arrays.asList(handler)));
+         this.handlerCount++;
+      }
+      this.dispatchPlans.clear();
+      this.handlerQualifierMasks.clear();
+   }
 
-               if (this.allHandlers.containsKey(exceptionType))
-               {
-                  this.allHandlers.get(exceptionType).add(new HandlerMethodImpl(method, bm));
-               }
-               else
-               {
-                  this.allHandlers.put(exceptionType, new HashSet<HandlerMethod>(Arrays.asList(new HandlerMethodImpl(
-                        method, bm))));
-               }
-            }
+   /**
+    * Listener to AfterDeploymentValidation event to freeze the handler registry and prepare all handlers for
+    * invocation.  No handlers are added after this, the frozen {@link HandlerRegistry} is published to all threads
+    * through a volatile field.  The beans declaring handlers are resolved and classified by scope, so that neither
+    * bean resolution nor, for normal scoped beans, contextual reference lookup happens while handling exceptions.
+    *
+    * @param adv Event from CDI SPI
+    * @param bm  Activated Bean Manager
+    */
+   public void prepareHandlers(@Observes final AfterDeploymentValidation adv, final BeanManager bm)
+   {
+      this.exceptionStackObserved = !bm.resolveObserverMethods(new ExceptionStack(new Exception())).isEmpty();
+
+      final HandlerRegistry frozenRegistry = new HandlerRegistry(this.allHandlers);
+      boolean anyAsync = false;
+      long shortestCoalesceWindow = Long.MAX_VALUE;
+
+      for (HandlerMethod handler : frozenRegistry.getAllHandlers())
+      {
+         try
+         {
+            handler.prepare(bm);
+         }
+         catch (RuntimeException e)
+         {
+            adv.addDeploymentProblem(e);
+         }
+         anyAsync |= handler.isAsync();
+         if (handler.getCoalesceWindow() > 0)
+         {
+            shortestCoalesceWindow = Math.min(shortestCoalesceWindow, handler.getCoalesceWindow());
          }
       }
+
+      if (anyAsync && this.asyncExecutor == null)
+      {
+         try
+         {
+            this.asyncExecutor = new AsyncHandlerExecutor(Integer.getInteger(ASYNC_THREADS_PROPERTY, 2),
+                  Integer.getInteger(ASYNC_QUEUE_CAPACITY_PROPERTY, 1000),
+                  AsyncHandlerExecutor.RejectionPolicy.valueOf(System.getProperty(ASYNC_REJECTION_POLICY_PROPERTY,
+                        AsyncHandlerExecutor.RejectionPolicy.DISCARD.name())));
+         }
+         catch (IllegalArgumentException e)
+         {
+            adv.addDeploymentProblem(e);
+         }
+      }
+
+      final int recorderCapacity = Integer.getInteger(RECORDER_CAPACITY_PROPERTY, 0);
+      if (recorderCapacity > 0)
+      {
+         try
+         {
+            this.recorder = new ExceptionRecorder(recorderCapacity, Integer.getInteger(RECORDER_FRAMES_PROPERTY, 8),
+                  frozenRegistry.getAllHandlers());
+         }
+         catch (IllegalArgumentException e)
+         {
+            adv.addDeploymentProblem(e);
+         }
+      }
+
+      if (shortestCoalesceWindow != Long.MAX_VALUE)
+      {
+         this.coalescedExceptionReporter = new CoalescedExceptionReporter(this.coalescer,
+               frozenRegistry.getAllHandlers(), bm, this.asyncExecutor);
+         this.coalescedExceptionReporter.start(shortestCoalesceWindow);
+      }
+
+      this.asyncHandlers = anyAsync;
+      this.metrics = new CatchMetrics(frozenRegistry.getAllHandlers());
+      this.registry = frozenRegistry;
+      this.allHandlers = null;
+
+      if (Boolean.parseBoolean(System.getProperty(JMX_PROPERTY, "true")))
+      {
+         this.management = CatchManagement.register(this);
+      }
+   }
+
+   /**
+    * Obtains the registry of all handlers.  Until the deployment is validated handlers may still be added, so a
+    * snapshot of the handlers found so far is taken on every call.
+    */
+   private HandlerRegistry getRegistry()
+   {
+      final HandlerRegistry frozenRegistry = this.registry;
+      return frozenRegistry != null ? frozenRegistry : new HandlerRegistry(this.allHandlers);
    }
 
    /**
     * Obtains the applicable handlers for the given type or super type of the given type.  Also makes use of {@link
-    * org.jboss.seam.exception.control.ExceptionHandlerComparator} to order the handlers.
+    * org.jboss.seam.exception.control.ExceptionHandlerComparator} to order the handlers.  The ordered list is computed
+    * once per combination of arguments and reused for subsequent calls.
     *
     * @param exceptionClass    Type of exception to narrow handler list
     * @param bm                active BeanManager
     * @param handlerQualifiers additional handlerQualifiers to limit handlers
     * @param traversalMode     traversal limiter
-    * @return An order collection of handlers for the given type.
+    * @return An immutable, ordered list of handlers for the given type.
+    */
+   public List<HandlerMethod> getHandlersForExceptionType(Type exceptionClass, BeanManager bm,
+                                                          Set<Annotation> handlerQualifiers,
+                                                          TraversalMode traversalMode)
+   {
+      return this.getHandlersForExceptionType(exceptionClass, handlerQualifiers,
+            this.qualifierIndex.getMask(handlerQualifiers), traversalMode);
+   }
+
+   /**
+    * Obtains the applicable handlers for the given type or super type of the given type, see {@link
+    * #getHandlersForExceptionType(Type, BeanManager, Set, TraversalMode)}.  Handlers are matched using the given
+    * qualifier mask, the qualifiers themselves are only compared if the mask overflows.
+    *
+    * @param exceptionClass    Type of exception to narrow handler list
+    * @param handlerQualifiers additional handlerQualifiers to limit handlers
+    * @param qualifierMask     mask of handlerQualifiers, as obtained from {@link #getQualifierMask(Set)}
+    * @param traversalMode     traversal limiter
+    * @return An immutable, ordered list of handlers for the given type.
+    */
+   public List<HandlerMethod> getHandlersForExceptionType(Type exceptionClass, Set<Annotation> handlerQualifiers,
+                                                          long qualifierMask, TraversalMode traversalMode)
+   {
+      if ((qualifierMask & QualifierIndex.OVERFLOW_MASK) != 0)
+      {
+         // The mask does not identify the qualifiers, so the plan can not be cached
+         if (this.metricsEnabled)
+         {
+            this.planCacheMissCount.incrementAndGet();
+         }
+         return this.createDispatchPlan(exceptionClass, handlerQualifiers, qualifierMask, traversalMode);
+      }
+
+      DispatchPlans plans = this.dispatchPlans.get(exceptionClass);
+
+      if (plans == null)
+      {
+         final DispatchPlans newPlans = new DispatchPlans();
+         plans = this.dispatchPlans.putIfAbsent(exceptionClass, newPlans);
+         if (plans == null)
+         {
+            plans = newPlans;
+         }
+      }
+
+      final List<HandlerMethod> cachedPlan = plans.get(qualifierMask, traversalMode);
+
+      if (cachedPlan != null)
+      {
+         if (this.metricsEnabled)
+         {
+            this.planCacheHitCount.incrementAndGet();
+         }
+         return cachedPlan;
+      }
+
+      if (this.metricsEnabled)
+      {
+         this.planCacheMissCount.incrementAndGet();
+      }
+      return plans.putIfAbsent(qualifierMask, traversalMode,
+            this.createDispatchPlan(exceptionClass, handlerQualifiers, qualifierMask, traversalMode));
+   }
+
+   /**
+    * Obtains the frozen handler registry, null until the deployment is validated.
     */
-   public Collection<HandlerMethod> getHandlersForExceptionType(Type exceptionClass, BeanManager bm,
-                                                                Set<Annotation> handlerQualifiers,
-                                                                TraversalMode traversalMode)
+   public HandlerRegistry getHandlerRegistry()
    {
-      final Set<HandlerMethod> returningHandlers = new TreeSet<HandlerMethod>(new ExceptionHandlerComparator());
-      final HierarchyDiscovery h = new HierarchyDiscovery(exceptionClass);
-      final Set<Type> closure = h.getTypeClosure();
+      return this.registry;
+   }
+
+   /**
+    * Obtains the number of exception types with cached dispatch plans.
+    */
+   public int getDispatchPlanTypeCount()
+   {
+      return this.dispatchPlans.size();
+   }
+
+   /**
+    * Obtains the number of cached dispatch plans, over all exception types, qualifier masks and traversal modes.
+    */
+   public int getDispatchPlanCount()
+   {
+      int planCount = 0;
+      for (DispatchPlans plans : this.dispatchPlans.values())
+      {
+         planCount += plans.plans.length;
+      }
+      return planCount;
+   }
+
+   /**
+    * Obtains the number of dispatch plan lookups served from the cache while metrics were enabled.
+    */
+   public long getDispatchPlanHitCount()
+   {
+      return this.planCacheHitCount.get();
+   }
+
+   /**
+    * Obtains the number of dispatch plans computed while metrics were enabled, because they were not cached yet, were
+    * evicted or can not be cached.
+    */
+   public long getDispatchPlanMissCount()
+   {
+      return this.planCacheMissCount.get();
+   }
+
+   /**
+    * Discards all cached dispatch plans and handler qualifier masks.  They are recomputed on demand.
+    */
+   public void evictDispatchPlans()
+   {
+      this.dispatchPlans.clear();
+      this.handlerQualifierMasks.clear();
+   }
+
+   /**
+    * Discards the recorded {@link CatchMetrics}, the dispatch plan hit and miss counts and the unhandled fast path
+    * count.
+    */
+   public void resetStatistics()
+   {
+      final CatchMetrics currentMetrics = this.metrics;
+
+      if (currentMetrics != null)
+      {
+         currentMetrics.reset();
+      }
+      this.planCacheHitCount.set(0);
+      this.planCacheMissCount.set(0);
+      this.unhandledFastPathCount.set(0);
+   }
+
+   /**
+    * Obtains the number of registered handlers.  Handler ordinals are less than this number.
+    */
+   public int getHandlerCount()
+   {
+      final HandlerRegistry frozenRegistry = this.registry;
+      return frozenRegistry != null ? frozenRegistry.size() : this.handlerCount;
+   }
+
+   /**
+    * Obtains the mask of the given qualifiers, qualifiers not used by any handler are left out.
+    *
+    * @param qualifiers qualifiers an exception is handled with
+    * @return qualifier mask, see {@link QualifierIndex}
+    */
+   public long getQualifierMask(Set<Annotation> qualifiers)
+   {
+      return this.qualifierIndex.getMask(qualifiers);
+   }
+
+   /**
+    * Determines if no handler at all can be invoked for the given exception, that is no element of its cause chain
+    * has a handler for the given qualifiers in either traversal mode.  The qualifiers of all handlers for a type are
+    * cached per exception type, so for exceptions without handlers this is a map lookup per cause, without building an
+    * exception stack.
+    * <p/>
+    * Observers of {@link ExceptionStack} may change the cause chain, so this always returns false while the stack is
+    * observed.
+    *
+    * @param exception     exception to be handled
+    * @param qualifierMask mask of the qualifiers the exception is handled with, see {@link #getQualifierMask(Set)}
+    * @return true if dispatching the exception would not invoke any handler
+    */
+   public boolean isUnhandled(Throwable exception, long qualifierMask)
+   {
+      if (this.exceptionStackObserved || (qualifierMask & QualifierIndex.OVERFLOW_MASK) != 0)
+      {
+         return false;
+      }
+
+      Throwable e = exception;
+      do
+      {
+         if (QualifierIndex.matches(this.getHandlerQualifierMask(e.getClass()), qualifierMask))
+         {
+            return false;
+         }
+         if (e instanceof SQLException)
+         {
+            SQLException sqlException = (SQLException) e;
+            while ((sqlException = sqlException.getNextException()) != null)
+            {
+               if (QualifierIndex.matches(this.getHandlerQualifierMask(sqlException.getClass()), qualifierMask))
+               {
+                  return false;
+               }
+            }
+         }
+      }
+      while ((e = e.getCause()) != null);
+
+      this.unhandledFastPathCount.incrementAndGet();
+      return true;
+   }
+
+   /**
+    * Obtains the union of the qualifier masks of all handlers for the given type or super types of the given type.
+    */
+   private long getHandlerQualifierMask(Class<?> exceptionClass)
+   {
+      final Long cachedMask = this.handlerQualifierMasks.get(exceptionClass);
+
+      if (cachedMask != null)
+      {
+         return cachedMask;
+      }
+
+      final HandlerRegistry currentRegistry = this.getRegistry();
+
+      long mask = 0;
+      for (Type hierarchyType : this.typeIndex.getTypeClosure(exceptionClass))
+      {
+         final List<HandlerMethod> handlers = currentRegistry.getHandlers(hierarchyType);
+         if (handlers != null)
+         {
+            for (int i = 0; i < handlers.size(); i++)
+            {
+               mask |= handlers.get(i).getQualifierMask();
+            }
+         }
+      }
+
+      this.handlerQualifierMasks.put(exceptionClass, mask);
+      return mask;
+   }
+
+   /**
+    * Obtains the number of exceptions found by {@link #isUnhandled(Throwable, long)} to have no handlers.
+    */
+   public long getUnhandledFastPathCount()
+   {
+      return this.unhandledFastPathCount.get();
+   }
+
+   /**
+    * Determines if the dispatcher reuses its state, including the {@link CaughtException} passed to handlers, from one
+    * dispatch to the next, see {@link #setEventReuseEnabled(boolean)}.
+    */
+   public boolean isEventReuseEnabled()
+   {
+      return this.eventReuseEnabled;
+   }
+
+   /**
+    * Enables or disables reuse of dispatch state.  If enabled, the exception stack, the set of processed handlers and
+    * a single {@link CaughtException} are kept per thread and reset for every dispatch and handler invocation, so
+    * dispatching an exception does not allocate them.  Handlers must then not keep a reference to the event or its
+    * exception stack after returning.
+    * <p/>
+    * The state is kept for the lifetime of each thread that dispatched an exception.  Disabled by default, unless the
+    * {@link #REUSE_EVENTS_PROPERTY} system property is true.
+    *
+    * @param eventReuseEnabled true to reuse dispatch state
+    */
+   public void setEventReuseEnabled(boolean eventReuseEnabled)
+   {
+      this.eventReuseEnabled = eventReuseEnabled;
+   }
+
+   /**
+    * Obtains the dispatch and handler metrics, recorded while {@link #isMetricsEnabled()}.  Available once the
+    * deployment is validated, null before that.
+    */
+   public CatchMetrics getMetrics()
+   {
+      return this.metrics;
+   }
+
+   public boolean isMetricsEnabled()
+   {
+      return this.metricsEnabled;
+   }
+
+   /**
+    * Enables or disables recording of {@link CatchMetrics}.  Recording times every dispatch and synchronous handler
+    * invocation, but neither locks nor allocates once a handler has been invoked.  Disabled by default, unless the
+    * {@link #METRICS_PROPERTY} system property is true.
+    *
+    * @param metricsEnabled true to record metrics
+    */
+   public void setMetricsEnabled(boolean metricsEnabled)
+   {
+      this.metricsEnabled = metricsEnabled;
+   }
+
+   /**
+    * Obtains the listener installed with {@link #setDispatchListener(DispatchListener)}, null if none is installed.
+    * The {@link #getRecorder() recorder} is not returned, it is reported to in addition to this listener.
+    */
+   public DispatchListener getDispatchListener()
+   {
+      return this.dispatchListener;
+   }
+
+   /**
+    * Installs a listener to report the lifecycle of every dispatch to, or removes it.  Without a listener, which is
+    * the default, and without a recorder, dispatches are neither timed nor described.  Dispatches already in progress
+    * keep reporting to the listener they started with.
+    *
+    * @param dispatchListener listener to install, null to remove the current one
+    */
+   public void setDispatchListener(DispatchListener dispatchListener)
+   {
+      this.dispatchListener = dispatchListener;
+   }
+
+   /**
+    * Obtains the recorder created for the {@link #RECORDER_CAPACITY_PROPERTY} system property, null if the property is
+    * not set.  The recorder is reported every dispatch, before the {@link #getDispatchListener() dispatch listener} if
+    * one is installed.
+    */
+   public ExceptionRecorder getRecorder()
+   {
+      return this.recorder;
+   }
+
+   /**
+    * Obtains the coalescing windows of handlers with a {@link Handles#coalesceWindow()}.
+    */
+   public ExceptionCoalescer getCoalescer()
+   {
+      return this.coalescer;
+   }
+
+   /**
+    * Determines if any handler is asynchronous, see {@link Handles#async()}.  This is known once the deployment is
+    * validated, before that it is false.
+    */
+   public boolean hasAsyncHandlers()
+   {
+      return this.asyncHandlers;
+   }
+
+   /**
+    * Obtains the executor of asynchronous handlers, null if there are none and no executor was set.
+    */
+   public AsyncHandlerExecutor getAsyncExecutor()
+   {
+      return this.asyncExecutor;
+   }
+
+   /**
+    * Replaces the executor of asynchronous handlers.  Unless an executor is set before the deployment is validated, a
+    * default executor is created if any handler is asynchronous, configured by the {@link #ASYNC_THREADS_PROPERTY},
+    * {@link #ASYNC_QUEUE_CAPACITY_PROPERTY} and {@link #ASYNC_REJECTION_POLICY_PROPERTY} system properties.  A
+    * replaced executor is not shut down.
+    *
+    * @param asyncExecutor executor to use, must not be null
+    */
+   public void setAsyncExecutor(AsyncHandlerExecutor asyncExecutor)
+   {
+      if (asyncExecutor == null)
+      {
+         throw new IllegalArgumentException("asyncExecutor must not be null");
+      }
+      this.asyncExecutor = asyncExecutor;
+   }
+
+   /**
+    * Listener to BeforeShutdown event to stop the executor of asynchronous handlers.
+    *
+    * @param bs Event from CDI SPI
+    */
+   public void shutdownAsyncExecutor(@Observes final BeforeShutdown bs)
+   {
+      final AsyncHandlerExecutor executor = this.asyncExecutor;
+
+      if (executor != null)
+      {
+         executor.shutdown();
+      }
+   }
+
+   /**
+    * Listener to BeforeShutdown event to stop reporting exceptions skipped by coalescing handlers.
+    *
+    * @param bs Event from CDI SPI
+    */
+   public void shutdownCoalescedExceptionReporter(@Observes final BeforeShutdown bs)
+   {
+      final CoalescedExceptionReporter reporter = this.coalescedExceptionReporter;
+
+      if (reporter != null)
+      {
+         reporter.shutdown();
+         this.coalescedExceptionReporter = null;
+      }
+   }
+
+   /**
+    * Listener to BeforeShutdown event to unregister the MBeans of this deployment.
+    *
+    * @param bs Event from CDI SPI
+    */
+   public void unregisterMBeans(@Observes final BeforeShutdown bs)
+   {
+      final CatchManagement currentManagement = this.management;
+
+      if (currentManagement != null)
+      {
+         currentManagement.unregister();
+         this.management = null;
+      }
+   }
+
+   /**
+    * Obtains the registration of the MBeans of this deployment, null if they are not registered.
+    */
+   public CatchManagement getManagement()
+   {
+      return this.management;
+   }
+
+   /**
+    * Determines if any observer of {@link ExceptionStack} exists.  The stack is always fired without qualifiers, so a
+    * single answer covers the events of every qualifier combination.  If false, the dispatcher neither fires the
+    * stack event nor resolves its observers.  This is known once the deployment is validated, before that it is
+    * assumed to be true.
+    */
+   public boolean isExceptionStackObserved()
+   {
+      return this.exceptionStackObserved;
+   }
+
+   private List<HandlerMethod> createDispatchPlan(Type exceptionClass, Set<Annotation> handlerQualifiers,
+                                                  long qualifierMask, TraversalMode traversalMode)
+   {
+      final List<HandlerMethod> returningHandlers = new ArrayList<HandlerMethod>();
+      final List<Type> closure = this.typeIndex.getTypeClosure(exceptionClass);
+      final HandlerRegistry currentRegistry = this.getRegistry();
 
       for (Type hierarchyType : closure)
       {
-         if (this.allHandlers.get(hierarchyType) != null)
+         final List<HandlerMethod> handlers = currentRegistry.getHandlers(hierarchyType);
+         if (handlers != null)
          {
-            for (HandlerMethod handler : this.allHandlers.get(hierarchyType))
+            for (HandlerMethod handler : handlers)
             {
-               if (handler.getTraversalMode() == traversalMode)
+               if (handler.getTraversalMode() == traversalMode
+                     && this.matches(handler, handlerQualifiers, qualifierMask))
                {
-                  if (handler.getQualifiers().contains(AnyLiteral.INSTANCE))
-                  {
-                     returningHandlers.add(handler);
-                  }
-                  else
-                  {
-                     if (!handlerQualifiers.isEmpty() && this.containsAny(handler.getQualifiers(), handlerQualifiers))
-                     {
-                        returningHandlers.add(handler);
-                     }
-                  }
+                  returningHandlers.add(handler);
                }
             }
          }
       }
 
-      return Collections.unmodifiableCollection(returningHandlers);
+      final HandlerMethod[] plan = returningHandlers.toArray(new HandlerMethod[returningHandlers.size()]);
+      Arrays.sort(plan, HANDLER_COMPARATOR);
+
+      return Collections.unmodifiableList(Arrays.asList(plan));
+   }
+
+   private boolean matches(HandlerMethod handler, Set<Annotation> handlerQualifiers, long qualifierMask)
+   {
+      if (QualifierIndex.matches(handler.getQualifierMask(), qualifierMask))
+      {
+         return true;
+      }
+
+      // Qualifiers beyond the capacity of a mask share a bit, compare them one by one
+      return (handler.getQualifierMask() & qualifierMask & QualifierIndex.OVERFLOW_MASK) != 0
+            && this.containsAny(handler.getQualifiers(), handlerQualifiers);
    }
 
    private boolean containsAny(final Collection<? extends Annotation> haystack,
@@ -170,4 +972,62 @@ public class CatchExtension implements Extension
       }
       return false;
    }
+
+   /**
+    * Dispatch plans of a single exception type, one per traversal mode and qualifier mask.  An exception type is
+    * usually handled with a few qualifier combinations only, so the plans are held in a copy on write array which is
+    * searched linearly, without allocating a lookup key.
+    */
+   private static final class DispatchPlans
+   {
+      private volatile DispatchPlan[] plans = new DispatchPlan[0];
+
+      List<HandlerMethod> get(long qualifierMask, TraversalMode traversalMode)
+      {
+         final DispatchPlan[] currentPlans = this.plans;
+
+         for (int i = 0; i < currentPlans.length; i++)
+         {
+            if (currentPlans[i].qualifierMask == qualifierMask && currentPlans[i].traversalMode == traversalMode)
+            {
+               return currentPlans[i].handlers;
+            }
+         }
+         return null;
+      }
+
+      synchronized List<HandlerMethod> putIfAbsent(long qualifierMask, TraversalMode traversalMode,
+                                                   List<HandlerMethod> handlers)
+      {
+         final List<HandlerMethod> existingHandlers = this.get(qualifierMask, traversalMode);
+
+         if (existingHandlers != null)
+         {
+            return existingHandlers;
+         }
+
+         final DispatchPlan[] newPlans = Arrays.copyOf(this.plans, this.plans.length + 1);
+         newPlans[newPlans.length - 1] = new DispatchPlan(qualifierMask, traversalMode, handlers);
+         this.plans = newPlans;
+
+         return handlers;
+      }
+   }
+
+   /**
+    * Ordered handlers for a qualifier mask and traversal mode.  This class is immutable.
+    */
+   private static final class DispatchPlan
+   {
+      private final long qualifierMask;
+      private final TraversalMode traversalMode;
+      private final List<HandlerMethod> handlers;
+
+      DispatchPlan(long qualifierMask, TraversalMode traversalMode, List<HandlerMethod> handlers)
+      {
+         this.qualifierMask = qualifierMask;
+         this.traversalMode = traversalMode;
+         this.handlers = handlers;
+      }
+   }
 }
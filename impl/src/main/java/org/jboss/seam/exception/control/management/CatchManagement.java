@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.management;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.seam.exception.control.extension.CatchExtension;
+
+/**
+ * Registers the MBeans of a deployment with the platform MBean server, as
+ * <code>org.jboss.seam.catch:type=HandlerRegistry,deployment=N</code> and
+ * <code>org.jboss.seam.catch:type=Statistics,deployment=N</code>, where N numbers the deployments of the JVM.
+ * Management is optional, so failures to register or unregister are ignored.
+ */
+public final class CatchManagement
+{
+   public static final String DOMAIN = "org.jboss.seam.catch";
+
+   private static final AtomicInteger DEPLOYMENT_NUMBER = new AtomicInteger();
+
+   private final ObjectName registryName;
+   private final ObjectName statisticsName;
+
+   private CatchManagement(ObjectName registryName, ObjectName statisticsName)
+   {
+      this.registryName = registryName;
+      this.statisticsName = statisticsName;
+   }
+
+   /**
+    * Registers the MBeans of the given extension.
+    *
+    * @param extension extension of the deployment
+    * @return registration to unregister on shutdown, null if registration failed
+    */
+   public static CatchManagement register(CatchExtension extension)
+   {
+      final int deployment = DEPLOYMENT_NUMBER.incrementAndGet();
+
+      try
+      {
+         final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         final ObjectName registryName =
+               new ObjectName(DOMAIN + ":type=HandlerRegistry,deployment=" + deployment);
+         final ObjectName statisticsName = new ObjectName(DOMAIN + ":type=Statistics,deployment=" + deployment);
+
+         server.registerMBean(new CatchRegistry(extension), registryName);
+         try
+         {
+            server.registerMBean(new CatchStatistics(extension), statisticsName);
+         }
+         catch (JMException e)
+         {
+            server.unregisterMBean(registryName);
+            throw e;
+         }
+         return new CatchManagement(registryName, statisticsName);
+      }
+      catch (JMException e)
+      {
+         return null;
+      }
+      catch (SecurityException e)
+      {
+         return null;
+      }
+   }
+
+   public ObjectName getRegistryName()
+   {
+      return this.registryName;
+   }
+
+   public ObjectName getStatisticsName()
+   {
+      return this.statisticsName;
+   }
+
+   /**
+    * Unregisters the MBeans.
+    */
+   public void unregister()
+   {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+      for (ObjectName name : new ObjectName[]{ this.registryName, this.statisticsName })
+      {
+         try
+         {
+            server.unregisterMBean(name);
+         }
+         catch (JMException e)
+         {
+            // Already unregistered
+         }
+         catch (SecurityException e)
+         {
+            // Not allowed, nothing else to do
+         }
+      }
+   }
+}
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.management;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jboss.seam.exception.control.HandlerMethod;
+import org.jboss.seam.exception.control.HandlerRegistry;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+
+/**
+ * Implementation of {@link CatchRegistryMXBean} on top of a {@link CatchExtension}.
+ */
+public class CatchRegistry implements CatchRegistryMXBean
+{
+   private final CatchExtension extension;
+
+   public CatchRegistry(CatchExtension extension)
+   {
+      this.extension = extension;
+   }
+
+   public int getHandlerCount()
+   {
+      return this.extension.getHandlerCount();
+   }
+
+   public List<HandlerInfo> getHandlers()
+   {
+      final HandlerRegistry registry = this.extension.getHandlerRegistry();
+      final List<HandlerInfo> handlers = new ArrayList<HandlerInfo>();
+
+      if (registry != null)
+      {
+         for (HandlerMethod<?> handler : registry.getAllHandlers())
+         {
+            handlers.add(HandlerInfo.of(handler));
+         }
+      }
+
+      Collections.sort(handlers, new Comparator<HandlerInfo>()
+      {
+         public int compare(HandlerInfo lhs, HandlerInfo rhs)
+         {
+            return lhs.getOrdinal() - rhs.getOrdinal();
+         }
+      });
+      return handlers;
+   }
+
+   public int getDispatchPlanTypeCount()
+   {
+      return this.extension.getDispatchPlanTypeCount();
+   }
+
+   public int getDispatchPlanCount()
+   {
+      return this.extension.getDispatchPlanCount();
+   }
+
+   public long getDispatchPlanHitCount()
+   {
+      return this.extension.getDispatchPlanHitCount();
+   }
+
+   public long getDispatchPlanMissCount()
+   {
+      return this.extension.getDispatchPlanMissCount();
+   }
+
+   public double getDispatchPlanHitRate()
+   {
+      final long hits = this.extension.getDispatchPlanHitCount();
+      final long lookups = hits + this.extension.getDispatchPlanMissCount();
+      return lookups == 0 ? 0 : (double) hits / lookups;
+   }
+
+   public void evictDispatchPlans()
+   {
+      this.extension.evictDispatchPlans();
+   }
+}
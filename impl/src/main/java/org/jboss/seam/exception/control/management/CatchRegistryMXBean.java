@@ -0,0 +1,64 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.management;
+
+import java.util.List;
+
+/**
+ * Management view of the frozen handler registry and the dispatch plan cache.
+ */
+public interface CatchRegistryMXBean
+{
+   int getHandlerCount();
+
+   /**
+    * Obtains all handlers, ordered by ordinal.
+    */
+   List<HandlerInfo> getHandlers();
+
+   /**
+    * Obtains the number of exception types with cached dispatch plans.
+    */
+   int getDispatchPlanTypeCount();
+
+   /**
+    * Obtains the number of cached dispatch plans.
+    */
+   int getDispatchPlanCount();
+
+   /**
+    * Obtains the number of plan lookups served from the cache, only counted while metrics are enabled.
+    */
+   long getDispatchPlanHitCount();
+
+   /**
+    * Obtains the number of plans computed because they were not cached, only counted while metrics are enabled.
+    */
+   long getDispatchPlanMissCount();
+
+   /**
+    * Obtains the share of plan lookups served from the cache, zero if there were none.  Like the hit and miss counts,
+    * it only covers lookups made while metrics are enabled.
+    */
+   double getDispatchPlanHitRate();
+
+   /**
+    * Discards all cached dispatch plans.
+    */
+   void evictDispatchPlans();
+}
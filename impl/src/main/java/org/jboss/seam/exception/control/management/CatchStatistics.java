@@ -0,0 +1,174 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.management;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.seam.exception.control.CatchMetrics;
+import org.jboss.seam.exception.control.ExceptionRecorder;
+import org.jboss.seam.exception.control.HandlerMetrics;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+
+/**
+ * Implementation of {@link CatchStatisticsMXBean} on top of a {@link CatchExtension}.
+ */
+public class CatchStatistics implements CatchStatisticsMXBean
+{
+   /**
+    * Number of exception types returned by {@link #getTopExceptionTypes()}.
+    */
+   public static final int TOP_EXCEPTION_TYPES = 20;
+
+   private final CatchExtension extension;
+
+   public CatchStatistics(CatchExtension extension)
+   {
+      this.extension = extension;
+   }
+
+   public boolean isMetricsEnabled()
+   {
+      return this.extension.isMetricsEnabled();
+   }
+
+   public void setMetricsEnabled(boolean metricsEnabled)
+   {
+      this.extension.setMetricsEnabled(metricsEnabled);
+   }
+
+   public long getDispatchCount()
+   {
+      final CatchMetrics metrics = this.extension.getMetrics();
+      return metrics != null ? metrics.getDispatchCount() : 0;
+   }
+
+   public long getHandlerInvocationCount()
+   {
+      final CatchMetrics metrics = this.extension.getMetrics();
+      return metrics != null ? metrics.getHandlerInvocationCount() : 0;
+   }
+
+   public long getMaxCauseDepth()
+   {
+      final CatchMetrics metrics = this.extension.getMetrics();
+      return metrics != null ? metrics.getMaxCauseDepth() : 0;
+   }
+
+   public double getMeanCauseDepth()
+   {
+      final CatchMetrics metrics = this.extension.getMetrics();
+      if (metrics == null || metrics.getDispatchCount() == 0)
+      {
+         return 0;
+      }
+      return (double) metrics.getCauseElementCount() / metrics.getDispatchCount();
+   }
+
+   public double getDispatchLatencyMean()
+   {
+      final CatchMetrics metrics = this.extension.getMetrics();
+      return metrics != null ? metrics.getDispatchLatency().getMean() : 0;
+   }
+
+   public long getDispatchLatencyMedian()
+   {
+      final CatchMetrics metrics = this.extension.getMetrics();
+      return metrics != null ? metrics.getDispatchLatency().getValueAtPercentile(50) : 0;
+   }
+
+   public long getDispatchLatency99thPercentile()
+   {
+      final CatchMetrics metrics = this.extension.getMetrics();
+      return metrics != null ? metrics.getDispatchLatency().getValueAtPercentile(99) : 0;
+   }
+
+   public long getDispatchLatencyMax()
+   {
+      final CatchMetrics metrics = this.extension.getMetrics();
+      return metrics != null ? metrics.getDispatchLatency().getMax() : 0;
+   }
+
+   public long getUnhandledFastPathCount()
+   {
+      return this.extension.getUnhandledFastPathCount();
+   }
+
+   public List<HandlerStatistics> getHandlerStatistics()
+   {
+      final CatchMetrics metrics = this.extension.getMetrics();
+
+      if (metrics == null)
+      {
+         return Collections.emptyList();
+      }
+
+      final List<HandlerStatistics> statistics = new ArrayList<HandlerStatistics>();
+      for (HandlerMetrics handlerMetrics : metrics.getInvokedHandlerMetrics())
+      {
+         statistics.add(HandlerStatistics.of(handlerMetrics));
+      }
+      return statistics;
+   }
+
+   public List<ExceptionTypeCount> getTopExceptionTypes()
+   {
+      final CatchMetrics metrics = this.extension.getMetrics();
+
+      if (metrics == null)
+      {
+         return Collections.emptyList();
+      }
+
+      final List<ExceptionTypeCount> topTypes = new ArrayList<ExceptionTypeCount>();
+      for (Map.Entry<Class<?>, Long> entry : metrics.getTopExceptionTypes(TOP_EXCEPTION_TYPES).entrySet())
+      {
+         topTypes.add(new ExceptionTypeCount(entry.getKey().getName(), entry.getValue()));
+      }
+      return topTypes;
+   }
+
+   public String dumpRecentExceptions()
+   {
+      final ExceptionRecorder recorder = this.extension.getRecorder();
+
+      if (recorder == null)
+      {
+         return "";
+      }
+
+      final StringBuilder dump = new StringBuilder(recorder.getCapacity() * 256);
+      try
+      {
+         recorder.export(dump);
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException(e); // StringBuilder does not throw
+      }
+      return dump.toString();
+   }
+
+   public void resetStatistics()
+   {
+      this.extension.resetStatistics();
+   }
+}
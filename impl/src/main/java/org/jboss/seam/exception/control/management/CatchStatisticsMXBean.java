@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.management;
+
+import java.util.List;
+
+/**
+ * Management view of the dispatch and handler metrics.  Latencies are in nanoseconds.  Nothing but the unhandled fast
+ * path count is recorded unless metrics are enabled.
+ */
+public interface CatchStatisticsMXBean
+{
+   boolean isMetricsEnabled();
+
+   void setMetricsEnabled(boolean metricsEnabled);
+
+   long getDispatchCount();
+
+   long getHandlerInvocationCount();
+
+   long getMaxCauseDepth();
+
+   double getMeanCauseDepth();
+
+   double getDispatchLatencyMean();
+
+   long getDispatchLatencyMedian();
+
+   long getDispatchLatency99thPercentile();
+
+   long getDispatchLatencyMax();
+
+   /**
+    * Obtains the number of exceptions found to have no handlers without dispatching them.
+    */
+   long getUnhandledFastPathCount();
+
+   /**
+    * Obtains the statistics of all handlers invoked since metrics were enabled or reset.
+    */
+   List<HandlerStatistics> getHandlerStatistics();
+
+   /**
+    * Obtains the most frequently dispatched exception types, most frequent first.
+    */
+   List<ExceptionTypeCount> getTopExceptionTypes();
+
+   /**
+    * Dumps the most recent dispatches kept by the {@link org.jboss.seam.exception.control.ExceptionRecorder}, oldest
+    * first.
+    *
+    * @return text dump, empty if no recorder is installed
+    */
+   String dumpRecentExceptions();
+
+   /**
+    * Discards all recorded statistics, including the dispatch plan hit and miss counts.
+    */
+   void resetStatistics();
+}
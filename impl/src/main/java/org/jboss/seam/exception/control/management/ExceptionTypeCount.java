@@ -0,0 +1,46 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.management;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Number of dispatches of an exception type.  This class is immutable.
+ */
+public class ExceptionTypeCount
+{
+   private final String exceptionType;
+   private final long count;
+
+   @ConstructorProperties({ "exceptionType", "count" })
+   public ExceptionTypeCount(String exceptionType, long count)
+   {
+      this.exceptionType = exceptionType;
+      this.count = count;
+   }
+
+   public String getExceptionType()
+   {
+      return this.exceptionType;
+   }
+
+   public long getCount()
+   {
+      return this.count;
+   }
+}
@@ -0,0 +1,124 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.management;
+
+import java.beans.ConstructorProperties;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.seam.exception.control.HandlerMethod;
+
+/**
+ * Description of a registered handler.  This class is immutable.
+ */
+public class HandlerInfo
+{
+   private final int ordinal;
+   private final String handler;
+   private final String exceptionType;
+   private final String traversalMode;
+   private final int precedence;
+   private final List<String> qualifiers;
+   private final boolean async;
+
+   @ConstructorProperties({ "ordinal", "handler", "exceptionType", "traversalMode", "precedence", "qualifiers",
+                            "async" })
+   public HandlerInfo(int ordinal, String handler, String exceptionType, String traversalMode, int precedence,
+                      List<String> qualifiers, boolean async)
+   {
+      this.ordinal = ordinal;
+      this.handler = handler;
+      this.exceptionType = exceptionType;
+      this.traversalMode = traversalMode;
+      this.precedence = precedence;
+      this.qualifiers = qualifiers;
+      this.async = async;
+   }
+
+   /**
+    * Describes the given handler.
+    *
+    * @param handler registered handler
+    * @return description of the handler
+    */
+   public static HandlerInfo of(HandlerMethod<?> handler)
+   {
+      final List<String> qualifiers = new ArrayList<String>();
+      for (Annotation qualifier : handler.getQualifiers())
+      {
+         qualifiers.add(qualifier.toString());
+      }
+
+      return new HandlerInfo(handler.getOrdinal(), describe(handler), describe(handler.getExceptionType()),
+            handler.getTraversalMode().name(), handler.getPrecedence(), qualifiers, handler.isAsync());
+   }
+
+   /**
+    * Names the given handler by its bean class and method.
+    */
+   static String describe(HandlerMethod<?> handler)
+   {
+      final String className = handler.getBeanClass().getName();
+      return handler.getJavaMethod() != null ? className + "#" + handler.getJavaMethod().getName() : className;
+   }
+
+   private static String describe(Type type)
+   {
+      return type instanceof Class ? ((Class<?>) type).getName() : String.valueOf(type);
+   }
+
+   public int getOrdinal()
+   {
+      return this.ordinal;
+   }
+
+   /**
+    * Obtains the bean class and method name of the handler.
+    */
+   public String getHandler()
+   {
+      return this.handler;
+   }
+
+   public String getExceptionType()
+   {
+      return this.exceptionType;
+   }
+
+   public String getTraversalMode()
+   {
+      return this.traversalMode;
+   }
+
+   public int getPrecedence()
+   {
+      return this.precedence;
+   }
+
+   public List<String> getQualifiers()
+   {
+      return this.qualifiers;
+   }
+
+   public boolean isAsync()
+   {
+      return this.async;
+   }
+}
@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.management;
+
+import java.beans.ConstructorProperties;
+
+import org.jboss.seam.exception.control.HandlerMetrics;
+import org.jboss.seam.exception.control.LatencyHistogram;
+
+/**
+ * Snapshot of the metrics of a handler, latencies in nanoseconds.  This class is immutable.
+ */
+public class HandlerStatistics
+{
+   private final String handler;
+   private final long invocationCount;
+   private final long failureCount;
+   private final long handledCount;
+   private final long abortCount;
+   private final long rethrowCount;
+   private final double latencyMean;
+   private final long latencyMedian;
+   private final long latency99thPercentile;
+   private final long latencyMax;
+
+   @ConstructorProperties({ "handler", "invocationCount", "failureCount", "handledCount", "abortCount", "rethrowCount",
+                            "latencyMean", "latencyMedian", "latency99thPercentile", "latencyMax" })
+   public HandlerStatistics(String handler, long invocationCount, long failureCount, long handledCount,
+                            long abortCount, long rethrowCount, double latencyMean, long latencyMedian,
+                            long latency99thPercentile, long latencyMax)
+   {
+      this.handler = handler;
+      this.invocationCount = invocationCount;
+      this.failureCount = failureCount;
+      this.handledCount = handledCount;
+      this.abortCount = abortCount;
+      this.rethrowCount = rethrowCount;
+      this.latencyMean = latencyMean;
+      this.latencyMedian = latencyMedian;
+      this.latency99thPercentile = latency99thPercentile;
+      this.latencyMax = latencyMax;
+   }
+
+   /**
+    * Takes a snapshot of the given metrics.  Rethrows count both {@link HandlerMetrics#getRethrowCount()} and
+    * {@link HandlerMetrics#getThrowCount()}.
+    *
+    * @param metrics metrics of a handler
+    * @return snapshot of the metrics
+    */
+   public static HandlerStatistics of(HandlerMetrics metrics)
+   {
+      final LatencyHistogram latency = metrics.getLatency();
+
+      return new HandlerStatistics(HandlerInfo.describe(metrics.getHandler()), metrics.getInvocationCount(),
+            metrics.getFailureCount(), metrics.getHandledCount(), metrics.getAbortCount(),
+            metrics.getRethrowCount() + metrics.getThrowCount(), latency.getMean(), latency.getValueAtPercentile(50),
+            latency.getValueAtPercentile(99), latency.getMax());
+   }
+
+   public String getHandler()
+   {
+      return this.handler;
+   }
+
+   public long getInvocationCount()
+   {
+      return this.invocationCount;
+   }
+
+   public long getFailureCount()
+   {
+      return this.failureCount;
+   }
+
+   public long getHandledCount()
+   {
+      return this.handledCount;
+   }
+
+   public long getAbortCount()
+   {
+      return this.abortCount;
+   }
+
+   public long getRethrowCount()
+   {
+      return this.rethrowCount;
+   }
+
+   public double getLatencyMean()
+   {
+      return this.latencyMean;
+   }
+
+   public long getLatencyMedian()
+   {
+      return this.latencyMedian;
+   }
+
+   public long getLatency99thPercentile()
+   {
+      return this.latency99thPercentile;
+   }
+
+   public long getLatencyMax()
+   {
+      return this.latencyMax;
+   }
+}
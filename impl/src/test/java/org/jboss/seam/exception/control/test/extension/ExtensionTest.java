@@ -21,6 +21,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -48,7 +49,9 @@ import static junit.framework.Assert.assertEquals;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(Arquillian.class)
 public class ExtensionTest
@@ -138,4 +141,49 @@ public class ExtensionTest
       assertEquals(2, extension.getHandlersForExceptionType(IllegalArgumentException.class, bm, qualifiers,
             TraversalMode.BREADTH_FIRST).size());
    }
+
+   @Test
+   public void assertDispatchPlanIsReusedForEqualLookups()
+   {
+      HashSet<Annotation> qualifiers = new HashSet<Annotation>();
+      qualifiers.add(CatchQualifierLiteral.INSTANCE);
+      final List<HandlerMethod> first = extension.getHandlersForExceptionType(IllegalArgumentException.class, bm,
+            qualifiers, TraversalMode.DEPTH_FIRST);
+
+      qualifiers.add(ArquillianLiteral.INSTANCE);
+      HashSet<Annotation> sameQualifiers = new HashSet<Annotation>();
+      sameQualifiers.add(CatchQualifierLiteral.INSTANCE);
+
+      assertSame(first, extension.getHandlersForExceptionType(IllegalArgumentException.class, bm, sameQualifiers,
+            TraversalMode.DEPTH_FIRST));
+      assertEquals(8, extension.getHandlersForExceptionType(IllegalArgumentException.class, bm, qualifiers,
+            TraversalMode.DEPTH_FIRST).size());
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void assertDispatchPlanIsImmutable()
+   {
+      extension.getHandlersForExceptionType(IllegalArgumentException.class, bm, Collections.<Annotation>emptySet(),
+            TraversalMode.DEPTH_FIRST).clear();
+   }
+
+   @Test
+   public void assertHandlerOrdinalsAreDense()
+   {
+      HashSet<Annotation> qualifiers = new HashSet<Annotation>();
+      qualifiers.add(CatchQualifierLiteral.INSTANCE);
+      qualifiers.add(ArquillianLiteral.INSTANCE);
+      final BitSet ordinals = new BitSet();
+
+      for (TraversalMode traversalMode : TraversalMode.values())
+      {
+         for (HandlerMethod handler : extension.getHandlersForExceptionType(Exception.class, bm, qualifiers,
+               traversalMode))
+         {
+            assertTrue(handler.getOrdinal() < extension.getHandlerCount());
+            assertFalse(ordinals.get(handler.getOrdinal()));
+            ordinals.set(handler.getOrdinal());
+         }
+      }
+   }
 }
@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.extension;
+
+import java.lang.management.ManagementFactory;
+
+import javax.enterprise.inject.spi.Extension;
+import javax.inject.Inject;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+
+import org.jboss.arquillian.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+import org.jboss.seam.exception.control.management.CatchManagement;
+import org.jboss.seam.exception.control.management.CatchRegistryMXBean;
+import org.jboss.seam.exception.control.management.CatchStatisticsMXBean;
+import org.jboss.seam.exception.control.management.HandlerInfo;
+import org.jboss.seam.exception.control.test.handler.ExtensionExceptionHandler;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Arquillian.class)
+public class ManagementTest
+{
+   @Deployment
+   public static Archive<?> createTestArchive()
+   {
+      return ShrinkWrap.create(JavaArchive.class)
+            .addPackage(CaughtException.class.getPackage())
+            .addClasses(CatchExtension.class, ExtensionExceptionHandler.class)
+            .addManifestResource(new ByteArrayAsset(new byte[0]), ArchivePaths.create("beans.xml"))
+            .addServiceProvider(Extension.class, CatchExtension.class);
+   }
+
+   @Inject
+   private CatchExtension extension;
+
+   @Inject
+   private ExceptionDispatcher dispatcher;
+
+   @Test
+   public void assertRegistryIsExposed()
+   {
+      final CatchManagement management = extension.getManagement();
+      assertNotNull(management);
+
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final CatchRegistryMXBean registry =
+            JMX.newMXBeanProxy(server, management.getRegistryName(), CatchRegistryMXBean.class);
+
+      assertEquals(extension.getHandlerCount(), registry.getHandlerCount());
+      assertEquals(extension.getHandlerCount(), registry.getHandlers().size());
+      for (HandlerInfo handler : registry.getHandlers())
+      {
+         assertTrue(handler.getHandler().startsWith(ExtensionExceptionHandler.class.getName()));
+         assertNotNull(handler.getTraversalMode());
+      }
+
+      registry.evictDispatchPlans();
+      assertEquals(0, registry.getDispatchPlanCount());
+   }
+
+   @Test
+   public void assertStatisticsAreExposed()
+   {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final CatchStatisticsMXBean statistics =
+            JMX.newMXBeanProxy(server, extension.getManagement().getStatisticsName(), CatchStatisticsMXBean.class);
+
+      statistics.resetStatistics();
+      statistics.setMetricsEnabled(true);
+      try
+      {
+         dispatcher.dispatch(new ExceptionToCatch(new IllegalArgumentException()));
+      }
+      finally
+      {
+         statistics.setMetricsEnabled(false);
+      }
+
+      assertEquals(1, statistics.getDispatchCount());
+      assertEquals(1, statistics.getTopExceptionTypes().size());
+      assertEquals(IllegalArgumentException.class.getName(),
+            statistics.getTopExceptionTypes().get(0).getExceptionType());
+      assertEquals(statistics.getHandlerInvocationCount(), statistics.getHandlerStatistics().size());
+
+      statistics.resetStatistics();
+      assertEquals(0, statistics.getDispatchCount());
+   }
+}
@@ -0,0 +1,103 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.flow;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.Handles;
+import org.jboss.seam.exception.control.HandlesExceptions;
+import org.jboss.seam.exception.control.TraversalMode;
+
+@HandlesExceptions
+@ApplicationScoped
+public class AsyncHandler
+{
+   private final CountDownLatch invoked = new CountDownLatch(1);
+   private volatile Thread invokingThread;
+   private final AtomicInteger running = new AtomicInteger();
+   private final AtomicInteger maxRunning = new AtomicInteger();
+   private final AtomicInteger limitedInvocations = new AtomicInteger();
+   private final AtomicInteger auditInvocations = new AtomicInteger();
+
+   public void handle(@Handles(async = true) CaughtException<UnsupportedOperationException> event)
+   {
+      this.invokingThread = Thread.currentThread();
+      event.handled();
+      this.invoked.countDown();
+   }
+
+   public void handleLimited(@Handles(async = true, maxConcurrency = 1) CaughtException<IllegalStateException> event)
+   {
+      final int nowRunning = this.running.incrementAndGet();
+      int currentMax = this.maxRunning.get();
+      while (nowRunning > currentMax && !this.maxRunning.compareAndSet(currentMax, nowRunning))
+      {
+         currentMax = this.maxRunning.get();
+      }
+      try
+      {
+         Thread.sleep(5);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+      }
+      this.running.decrementAndGet();
+      this.limitedInvocations.incrementAndGet();
+   }
+
+   public void audit(@Handles(async = true, during = TraversalMode.BREADTH_FIRST)
+                     CaughtException<ArrayIndexOutOfBoundsException> event)
+   {
+      this.auditInvocations.incrementAndGet();
+   }
+
+   public void fail(@Handles CaughtException<ArrayIndexOutOfBoundsException> event)
+   {
+      throw new UnsupportedOperationException("Synchronous handler failed");
+   }
+
+   public CountDownLatch getInvoked()
+   {
+      return this.invoked;
+   }
+
+   public Thread getInvokingThread()
+   {
+      return this.invokingThread;
+   }
+
+   public int getMaxRunning()
+   {
+      return this.maxRunning.get();
+   }
+
+   public int getLimitedInvocations()
+   {
+      return this.limitedInvocations.get();
+   }
+
+   public int getAuditInvocations()
+   {
+      return this.auditInvocations.get();
+   }
+}
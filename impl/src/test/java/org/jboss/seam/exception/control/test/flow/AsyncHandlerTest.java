@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.flow;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.jboss.arquillian.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(Arquillian.class)
+public class AsyncHandlerTest
+{
+   @Deployment
+   public static Archive<?> createTestArchive()
+   {
+      return ShrinkWrap.create(JavaArchive.class)
+            .addPackage(CaughtException.class.getPackage())
+            .addClasses(AsyncHandler.class, CatchExtension.class)
+            .addManifestResource("META-INF/services/javax.enterprise.inject.spi.Extension")
+            .addManifestResource(new ByteArrayAsset(new byte[0]), ArchivePaths.create("beans.xml"));
+   }
+
+   @Inject
+   private ExceptionDispatcher dispatcher;
+
+   @Inject
+   private CatchExtension extension;
+
+   @Inject
+   private AsyncHandler handler;
+
+   @Test
+   public void assertAsyncHandlerRunsOnExecutorThread() throws InterruptedException
+   {
+      assertTrue(extension.hasAsyncHandlers());
+      assertNotNull(extension.getAsyncExecutor());
+
+      assertFalse(dispatcher.dispatch(new ExceptionToCatch(new UnsupportedOperationException())).isHandled());
+
+      assertTrue(handler.getInvoked().await(10, TimeUnit.SECONDS));
+      assertNotSame(Thread.currentThread(), handler.getInvokingThread());
+      assertTrue(extension.getAsyncExecutor().getSubmittedCount() >= 1);
+   }
+
+   @Test
+   public void assertConcurrencyLimitIsHonored() throws InterruptedException
+   {
+      final int dispatches = 20;
+
+      for (int i = 0; i < dispatches; i++)
+      {
+         dispatcher.dispatch(new ExceptionToCatch(new IllegalStateException()));
+      }
+
+      for (int i = 0; i < 1000 && handler.getLimitedInvocations() < dispatches; i++)
+      {
+         Thread.sleep(10);
+      }
+
+      assertEquals(dispatches, handler.getLimitedInvocations());
+      assertEquals(1, handler.getMaxRunning());
+   }
+
+   @Test
+   public void assertAsyncHandlersAreNotSubmittedIfSynchronousHandlerThrows()
+   {
+      final long submitted = extension.getAsyncExecutor().getSubmittedCount();
+
+      try
+      {
+         dispatcher.dispatch(new ExceptionToCatch(new ArrayIndexOutOfBoundsException()));
+         fail("Exception of the synchronous handler was not propagated");
+      }
+      catch (RuntimeException e)
+      {
+         assertTrue(e.getCause() instanceof UnsupportedOperationException);
+      }
+
+      assertEquals(submitted, extension.getAsyncExecutor().getSubmittedCount());
+      assertEquals(0, handler.getAuditInvocations());
+   }
+}
@@ -0,0 +1,101 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.flow;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.jboss.arquillian.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.seam.exception.control.CatchMetrics;
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.jboss.seam.exception.control.HandlerMetrics;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Arquillian.class)
+public class CatchMetricsTest
+{
+   @Deployment
+   public static Archive<?> createTestArchive()
+   {
+      return ShrinkWrap.create(JavaArchive.class)
+            .addPackage(CaughtException.class.getPackage())
+            .addClasses(ExceptionHandledHandler.class, CatchExtension.class)
+            .addManifestResource("META-INF/services/javax.enterprise.inject.spi.Extension")
+            .addManifestResource(new ByteArrayAsset(new byte[0]), ArchivePaths.create("beans.xml"));
+   }
+
+   @Inject
+   private ExceptionDispatcher dispatcher;
+
+   @Inject
+   private CatchExtension extension;
+
+   @Test
+   public void assertNothingIsRecordedByDefault()
+   {
+      assertFalse(extension.isMetricsEnabled());
+
+      extension.getMetrics().reset();
+      dispatcher.dispatch(new ExceptionToCatch(new Exception(new IllegalArgumentException())));
+
+      assertEquals(0, extension.getMetrics().getDispatchCount());
+   }
+
+   @Test
+   public void assertDispatchAndHandlersAreRecorded()
+   {
+      final CatchMetrics metrics = extension.getMetrics();
+      metrics.reset();
+      extension.setMetricsEnabled(true);
+      try
+      {
+         dispatcher.dispatch(new ExceptionToCatch(new Exception(new IllegalArgumentException())));
+      }
+      finally
+      {
+         extension.setMetricsEnabled(false);
+      }
+
+      assertEquals(1, metrics.getDispatchCount());
+      assertEquals(2, metrics.getMaxCauseDepth());
+      assertEquals(1, metrics.getHandlerInvocationCount());
+      assertEquals(1, metrics.getDispatchLatency().getCount());
+
+      final List<HandlerMetrics> handlerMetrics = metrics.getInvokedHandlerMetrics();
+      assertEquals(1, handlerMetrics.size());
+      assertEquals("npeHandler", handlerMetrics.get(0).getHandler().getJavaMethod().getName());
+      assertEquals(1, handlerMetrics.get(0).getHandledCount());
+      assertEquals(0, handlerMetrics.get(0).getFailureCount());
+      assertTrue(handlerMetrics.get(0).getLatency().getMax() >= 0);
+   }
+}
@@ -0,0 +1,51 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.flow;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.Handles;
+import org.jboss.seam.exception.control.HandlesExceptions;
+
+@HandlesExceptions
+@ApplicationScoped
+public class CoalescingHandler
+{
+   private final AtomicInteger invocations = new AtomicInteger();
+   private final AtomicInteger occurrences = new AtomicInteger();
+
+   public void handleEveryCause(@Handles(coalesceWindow = 60000) CaughtException<Exception> event)
+   {
+      this.invocations.incrementAndGet();
+      this.occurrences.addAndGet(event.getOccurrences());
+      event.unmute();
+   }
+
+   public int getInvocations()
+   {
+      return this.invocations.get();
+   }
+
+   public int getOccurrences()
+   {
+      return this.occurrences.get();
+   }
+}
@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.flow;
+
+import javax.inject.Inject;
+
+import org.jboss.arquillian.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(Arquillian.class)
+public class CoalescingHandlerTest
+{
+   @Deployment
+   public static Archive<?> createTestArchive()
+   {
+      return ShrinkWrap.create(JavaArchive.class)
+            .addPackage(CaughtException.class.getPackage())
+            .addClasses(CoalescingHandler.class, CatchExtension.class)
+            .addManifestResource("META-INF/services/javax.enterprise.inject.spi.Extension")
+            .addManifestResource(new ByteArrayAsset(new byte[0]), ArchivePaths.create("beans.xml"));
+   }
+
+   @Inject
+   private ExceptionDispatcher dispatcher;
+
+   @Inject
+   private CatchExtension extension;
+
+   @Inject
+   private CoalescingHandler handler;
+
+   @Test
+   public void assertMultiCauseDispatchCountsOnce()
+   {
+      final Exception[] exceptions = new Exception[2];
+      for (int i = 0; i < exceptions.length; i++)
+      {
+         exceptions[i] = new Exception(new IllegalArgumentException());
+      }
+      final long coalescedBefore = extension.getCoalescer().getCoalescedCount();
+
+      dispatcher.dispatch(new ExceptionToCatch(exceptions[0]));
+
+      // Reached for both causes, but the exception opens the window once
+      assertEquals(2, handler.getInvocations());
+      assertEquals(2, handler.getOccurrences());
+      assertEquals(coalescedBefore, extension.getCoalescer().getCoalescedCount());
+
+      dispatcher.dispatch(new ExceptionToCatch(exceptions[1]));
+
+      assertEquals(2, handler.getInvocations());
+      assertEquals(coalescedBefore + 1, extension.getCoalescer().getCoalescedCount());
+   }
+}
@@ -0,0 +1,45 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.exception.control.test.flow;
+
+import javax.annotation.PreDestroy;
+
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.Handles;
+import org.jboss.seam.exception.control.HandlesExceptions;
+
+/**
+ * Dependent handler taking a dependent parameter besides the event, counting the handler instances destroyed.
+ */
+@HandlesExceptions
+public class DependentHandler
+{
+   public static int INVOKED = 0;
+   public static int DESTROYED = 0;
+
+   public void handle(@Handles CaughtException<IllegalStateException> event, DependentResource resource)
+   {
+      INVOKED++;
+      event.handled();
+   }
+
+   @PreDestroy
+   public void destroy()
+   {
+      DESTROYED++;
+   }
+}
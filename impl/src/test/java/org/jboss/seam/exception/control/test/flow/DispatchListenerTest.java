@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.flow;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.jboss.arquillian.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.DispatchListener;
+import org.jboss.seam.exception.control.DispatchOutcome;
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.jboss.seam.exception.control.HandlerMethod;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(Arquillian.class)
+public class DispatchListenerTest
+{
+   @Deployment
+   public static Archive<?> createTestArchive()
+   {
+      return ShrinkWrap.create(JavaArchive.class)
+            .addPackage(CaughtException.class.getPackage())
+            .addClasses(ExceptionHandledHandler.class, CatchExtension.class)
+            .addManifestResource("META-INF/services/javax.enterprise.inject.spi.Extension")
+            .addManifestResource(new ByteArrayAsset(new byte[0]), ArchivePaths.create("beans.xml"));
+   }
+
+   @Inject
+   private ExceptionDispatcher dispatcher;
+
+   @Inject
+   private CatchExtension extension;
+
+   @Test
+   public void assertNoListenerIsInstalledByDefault()
+   {
+      assertNull(extension.getDispatchListener());
+   }
+
+   @Test
+   public void assertDispatchLifecycleIsReported()
+   {
+      final RecordingListener listener = new RecordingListener();
+      final Exception exception = new Exception(new IllegalArgumentException());
+
+      extension.setDispatchListener(listener);
+      try
+      {
+         dispatcher.dispatch(new ExceptionToCatch(exception));
+      }
+      finally
+      {
+         extension.setDispatchListener(null);
+      }
+
+      assertEquals(1, listener.started.size());
+      assertSame(exception, listener.started.get(0));
+      assertEquals(1, listener.ended.size());
+      assertSame(exception, listener.ended.get(0));
+      assertEquals(2, listener.causeDepth);
+      assertEquals(DispatchOutcome.HANDLED, listener.outcome);
+
+      assertEquals(1, listener.handlers.size());
+      assertEquals("npeHandler", listener.handlers.get(0).getJavaMethod().getName());
+      assertFalse(listener.handlerFailed);
+   }
+
+   private static class RecordingListener implements DispatchListener
+   {
+      private final List<Throwable> started = Collections.synchronizedList(new ArrayList<Throwable>());
+      private final List<Throwable> ended = Collections.synchronizedList(new ArrayList<Throwable>());
+      private final List<HandlerMethod<?>> handlers = Collections.synchronizedList(new ArrayList<HandlerMethod<?>>());
+      private volatile int causeDepth;
+      private volatile DispatchOutcome outcome;
+      private volatile boolean handlerFailed;
+
+      public void dispatchStarted(Throwable exception, Set<Annotation> qualifiers)
+      {
+         this.started.add(exception);
+      }
+
+      public void dispatchEnded(Throwable exception, Set<Annotation> qualifiers, int causeDepth,
+                                DispatchOutcome outcome, long durationNanos)
+      {
+         this.ended.add(exception);
+         this.causeDepth = causeDepth;
+         this.outcome = outcome;
+      }
+
+      public void handlerInvoked(HandlerMethod<?> handler, Throwable exception, long durationNanos, boolean failed)
+      {
+         this.handlers.add(handler);
+         this.handlerFailed |= failed;
+      }
+   }
+}
@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.exception.control.test.flow;
+
+import javax.inject.Inject;
+
+import org.jboss.arquillian.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(Arquillian.class)
+public class HandlerInvokerTest
+{
+   @Deployment
+   public static Archive<?> createTestArchive()
+   {
+      return ShrinkWrap.create(JavaArchive.class)
+            .addPackage(CaughtException.class.getPackage())
+            .addClasses(NormalScopedHandler.class, InvocationCounter.class, CatchExtension.class)
+            .addManifestResource("META-INF/services/javax.enterprise.inject.spi.Extension")
+            .addManifestResource(new ByteArrayAsset(new byte[0]), ArchivePaths.create("beans.xml"));
+   }
+
+   @Inject
+   private ExceptionDispatcher dispatcher;
+
+   @Inject
+   private NormalScopedHandler handler;
+
+   @Inject
+   private InvocationCounter counter;
+
+   @Test
+   public void assertPreparedInvokerIsReused()
+   {
+      final int invocations = handler.getInvocations();
+      final int count = counter.getCount();
+
+      dispatcher.dispatch(new ExceptionToCatch(new IllegalStateException()));
+      dispatcher.dispatch(new ExceptionToCatch(new IllegalStateException()));
+
+      assertEquals(invocations + 2, handler.getInvocations());
+      assertEquals(count + 2, counter.getCount());
+   }
+
+   @Test
+   public void assertHandlerExceptionsAreWrapped()
+   {
+      try
+      {
+         dispatcher.dispatch(new ExceptionToCatch(new ArrayStoreException()));
+         fail("Exception of the handler was not propagated");
+      }
+      catch (RuntimeException e)
+      {
+         assertEquals(RuntimeException.class, e.getClass());
+         assertTrue(e.getCause() instanceof UnsupportedOperationException);
+      }
+   }
+}
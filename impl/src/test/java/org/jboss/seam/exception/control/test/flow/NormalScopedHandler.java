@@ -0,0 +1,50 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.seam.exception.control.test.flow;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.Handles;
+import org.jboss.seam.exception.control.HandlesExceptions;
+
+/**
+ * Normal scoped handler taking a normal scoped parameter besides the event, invoked without any dependent objects.
+ */
+@HandlesExceptions
+@ApplicationScoped
+public class NormalScopedHandler
+{
+   private int invocations;
+
+   public void handle(@Handles CaughtException<IllegalStateException> event, InvocationCounter counter)
+   {
+      this.invocations++;
+      counter.increment();
+      event.handled();
+   }
+
+   public void fail(@Handles CaughtException<ArrayStoreException> event)
+   {
+      throw new UnsupportedOperationException("Failing handler");
+   }
+
+   public int getInvocations()
+   {
+      return this.invocations;
+   }
+}
@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.flow;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import javax.inject.Inject;
+
+import org.jboss.arquillian.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.ExceptionDispatcher;
+import org.jboss.seam.exception.control.ExceptionToCatch;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(Arquillian.class)
+public class ReusedEventDispatchTest
+{
+   private static final int WARM_UP_DISPATCHES = 20000;
+   private static final int MEASURED_DISPATCHES = 10000;
+
+   /**
+    * Bytes allowed per dispatch, left for the client proxy of the handler bean and the reflective invocation.
+    */
+   private static final long MAX_BYTES_PER_DISPATCH = 256;
+
+   @Deployment
+   public static Archive<?> createTestArchive()
+   {
+      return ShrinkWrap.create(JavaArchive.class)
+            .addPackage(CaughtException.class.getPackage())
+            .addClasses(ReusedEventHandler.class, CatchExtension.class)
+            .addManifestResource("META-INF/services/javax.enterprise.inject.spi.Extension")
+            .addManifestResource(new ByteArrayAsset(new byte[0]), ArchivePaths.create("beans.xml"));
+   }
+
+   @Inject
+   private ExceptionDispatcher dispatcher;
+
+   @Inject
+   private CatchExtension extension;
+
+   @Inject
+   private ReusedEventHandler handler;
+
+   @Test
+   public void assertEventIsNotReusedByDefault()
+   {
+      assertFalse(extension.isEventReuseEnabled());
+
+      dispatcher.dispatch(new ExceptionToCatch(new ArithmeticException()));
+      dispatcher.dispatch(new ExceptionToCatch(new ArithmeticException()));
+
+      assertFalse(handler.isEventReused());
+   }
+
+   @Test
+   public void assertEventIsReusedWhenEnabled()
+   {
+      extension.setEventReuseEnabled(true);
+      try
+      {
+         dispatcher.dispatch(new ExceptionToCatch(new ArithmeticException()));
+         assertTrue(dispatcher.dispatch(new ExceptionToCatch(new ArithmeticException())).isHandled());
+
+         assertTrue(handler.isEventReused());
+      }
+      finally
+      {
+         extension.setEventReuseEnabled(false);
+      }
+   }
+
+   @Test
+   public void assertReusedDispatchAllocatesAlmostNothing()
+   {
+      final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+      assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+
+      final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+      assumeTrue(allocationBean.isThreadAllocatedMemorySupported()
+            && allocationBean.isThreadAllocatedMemoryEnabled());
+
+      final ExceptionToCatch event = new ExceptionToCatch(new ArithmeticException());
+      final long threadId = Thread.currentThread().getId();
+
+      extension.setEventReuseEnabled(true);
+      try
+      {
+         for (int i = 0; i < WARM_UP_DISPATCHES; i++)
+         {
+            dispatcher.dispatch(event);
+         }
+
+         final long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+         for (int i = 0; i < MEASURED_DISPATCHES; i++)
+         {
+            dispatcher.dispatch(event);
+         }
+         final long allocatedPerDispatch = (allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore)
+               / MEASURED_DISPATCHES;
+
+         assertTrue(String.format("%d bytes allocated per dispatch", allocatedPerDispatch),
+               allocatedPerDispatch <= MAX_BYTES_PER_DISPATCH);
+      }
+      finally
+      {
+         extension.setEventReuseEnabled(false);
+      }
+   }
+}
@@ -0,0 +1,48 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.flow;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.Handles;
+import org.jboss.seam.exception.control.HandlesExceptions;
+
+/**
+ * Handler recording the identity of the event it was passed.  Keeping the event is not allowed if events are reused,
+ * it is only compared to the next event here.
+ */
+@HandlesExceptions
+@ApplicationScoped
+public class ReusedEventHandler
+{
+   private CaughtException<?> lastEvent;
+   private boolean eventReused;
+
+   public void handle(@Handles CaughtException<ArithmeticException> event)
+   {
+      this.eventReused = event == this.lastEvent;
+      this.lastEvent = event;
+      event.handled();
+   }
+
+   public boolean isEventReused()
+   {
+      return this.eventReused;
+   }
+}
@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.handler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.ExceptionCoalescer;
+import org.jboss.seam.exception.control.ExceptionFingerprint;
+import org.jboss.seam.exception.control.ExceptionStack;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ExceptionCoalescerTest
+{
+   private static final long WINDOW_MILLIS = 1000;
+   private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS);
+   private static final ExceptionStack STACK = new ExceptionStack(new IllegalStateException());
+
+   @Test
+   public void assertIdenticalExceptionsHaveEqualFingerprints()
+   {
+      final ExceptionFingerprint[] fingerprints = new ExceptionFingerprint[2];
+      for (int i = 0; i < fingerprints.length; i++)
+      {
+         fingerprints[i] = ExceptionFingerprint.of(throwFromSameSite("message " + i));
+      }
+      final ExceptionFingerprint first = fingerprints[0];
+      final ExceptionFingerprint second = fingerprints[1];
+
+      assertEquals(first, second);
+      assertEquals(first.hashCode(), second.hashCode());
+      assertFalse(first.equals(ExceptionFingerprint.of(new IllegalStateException(new RuntimeException()))));
+      assertFalse(first.equals(ExceptionFingerprint.of(new IllegalStateException())));
+   }
+
+   @Test
+   public void assertExceptionsAreCoalescedPerWindow()
+   {
+      final ExceptionCoalescer coalescer = new ExceptionCoalescer(16);
+      final ExceptionFingerprint fingerprint = ExceptionFingerprint.of(throwFromSameSite("storm"));
+
+      assertEquals(1, coalescer.admit(0, WINDOW_MILLIS, fingerprint, 0, STACK, true, false));
+      assertEquals(0, coalescer.admit(0, WINDOW_MILLIS, fingerprint, 1, STACK, true, false));
+      assertEquals(0, coalescer.admit(0, WINDOW_MILLIS, fingerprint, WINDOW_NANOS - 1, STACK, true, false));
+      assertEquals(1, coalescer.admit(1, WINDOW_MILLIS, fingerprint, 2, STACK, true, false));
+
+      assertEquals(3, coalescer.admit(0, WINDOW_MILLIS, fingerprint, WINDOW_NANOS, STACK, true, false));
+      assertEquals(1, coalescer.admit(0, WINDOW_MILLIS, fingerprint, 3 * WINDOW_NANOS, STACK, true, false));
+      assertEquals(2, coalescer.getCoalescedCount());
+   }
+
+   @Test
+   public void assertNewFingerprintsAreNotCoalescedWhenFull()
+   {
+      final ExceptionCoalescer coalescer = new ExceptionCoalescer(1);
+      final ExceptionFingerprint first = ExceptionFingerprint.of(throwFromSameSite("first"));
+      final ExceptionFingerprint other = ExceptionFingerprint.of(new IllegalStateException());
+
+      assertEquals(1, coalescer.admit(0, WINDOW_MILLIS, first, 0, STACK, true, false));
+      assertEquals(1, coalescer.admit(0, WINDOW_MILLIS, other, 1, STACK, true, false));
+      assertEquals(1, coalescer.admit(0, WINDOW_MILLIS, other, 2, STACK, true, false));
+      assertEquals(1, coalescer.getWindowCount());
+
+      assertEquals(1, coalescer.admit(0, WINDOW_MILLIS, other, WINDOW_NANOS, STACK, true, false));
+      assertEquals(0, coalescer.admit(0, WINDOW_MILLIS, other, WINDOW_NANOS + 1, STACK, true, false));
+   }
+
+   @Test
+   public void assertTrailingBurstIsReported()
+   {
+      final ExceptionCoalescer coalescer = new ExceptionCoalescer(16);
+      final Throwable exception = throwFromSameSite("burst");
+      final ExceptionFingerprint fingerprint = ExceptionFingerprint.of(exception);
+      final ExceptionStack stack = new ExceptionStack(exception);
+
+      assertEquals(1, coalescer.admit(0, WINDOW_MILLIS, fingerprint, 0, stack, false, true));
+      assertEquals(0, coalescer.admit(0, WINDOW_MILLIS, fingerprint, 1, stack, false, true));
+      assertEquals(0, coalescer.admit(0, WINDOW_MILLIS, fingerprint, 2, stack, false, true));
+
+      assertTrue(coalescer.collectReports(WINDOW_NANOS - 1).isEmpty());
+
+      final List<ExceptionCoalescer.Report> reports = coalescer.collectReports(WINDOW_NANOS);
+      assertEquals(1, reports.size());
+      assertEquals(0, reports.get(0).getHandlerOrdinal());
+      assertEquals(2, reports.get(0).getOccurrences());
+
+      final CaughtException<?> event = reports.get(0).createEvent();
+      assertNotSame(stack.getCurrent(), event.getException());
+      assertSame(RuntimeException.class, event.getException().getClass());
+      assertTrue(event.getException().getMessage().startsWith("2 "));
+      assertEquals(Arrays.asList(stack.getCurrent().getStackTrace()).subList(0, ExceptionFingerprint.FRAMES),
+            Arrays.asList(event.getException().getStackTrace()));
+      assertSame(IllegalStateException.class,
+            event.getExceptionStack().getCauseElements().iterator().next().getClass());
+      assertEquals(2, event.getOccurrences());
+      assertEquals(0, coalescer.getWindowCount());
+
+      // The reported count is not passed on to the next exception
+      assertEquals(1, coalescer.admit(0, WINDOW_MILLIS, fingerprint, WINDOW_NANOS + 1, stack, false, true));
+      assertTrue(coalescer.collectReports(2 * WINDOW_NANOS + 1).isEmpty());
+   }
+
+   @Test
+   public void assertEvictedCountsAreReported()
+   {
+      final ExceptionCoalescer coalescer = new ExceptionCoalescer(1);
+      final ExceptionFingerprint first = ExceptionFingerprint.of(throwFromSameSite("first"));
+      final ExceptionFingerprint other = ExceptionFingerprint.of(new IllegalStateException());
+
+      assertEquals(1, coalescer.admit(0, WINDOW_MILLIS, first, 0, STACK, true, false));
+      assertEquals(0, coalescer.admit(0, WINDOW_MILLIS, first, 1, STACK, true, false));
+      assertEquals(1, coalescer.admit(0, WINDOW_MILLIS, other, WINDOW_NANOS, STACK, true, false));
+
+      final List<ExceptionCoalescer.Report> reports = coalescer.collectReports(WINDOW_NANOS);
+      assertEquals(1, reports.size());
+      assertEquals(1, reports.get(0).getOccurrences());
+      assertEquals(1, coalescer.getWindowCount());
+   }
+
+   @Test
+   public void assertNoEventIsCreatedForExceptionsWhichCanNotBeRecreated()
+   {
+      final ExceptionCoalescer coalescer = new ExceptionCoalescer(16);
+      final Throwable exception = new CodedException(42);
+      final ExceptionFingerprint fingerprint = ExceptionFingerprint.of(exception);
+      final ExceptionStack stack = new ExceptionStack(exception);
+
+      assertEquals(1, coalescer.admit(0, WINDOW_MILLIS, fingerprint, 0, stack, true, false));
+      assertEquals(0, coalescer.admit(0, WINDOW_MILLIS, fingerprint, 1, stack, true, false));
+
+      final List<ExceptionCoalescer.Report> reports = coalescer.collectReports(WINDOW_NANOS);
+      assertEquals(1, reports.size());
+      assertSame(CodedException.class, reports.get(0).getCauseType());
+      assertNull(reports.get(0).createEvent());
+   }
+
+   private static Throwable throwFromSameSite(String message)
+   {
+      return new IllegalStateException(message, new RuntimeException(message));
+   }
+
+   public static class CodedException extends RuntimeException
+   {
+      public CodedException(int code)
+      {
+         super("Error " + code);
+      }
+   }
+}
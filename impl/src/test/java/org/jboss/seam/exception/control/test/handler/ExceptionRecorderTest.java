@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.handler;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.enterprise.inject.Default;
+import javax.enterprise.util.AnnotationLiteral;
+
+import org.jboss.seam.exception.control.DispatchOutcome;
+import org.jboss.seam.exception.control.ExceptionRecorder;
+import org.jboss.seam.exception.control.ExceptionSummary;
+import org.jboss.seam.exception.control.HandlerMethod;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExceptionRecorderTest
+{
+   private static final Set<Annotation> NO_QUALIFIERS = Collections.emptySet();
+   private static final List<HandlerMethod> NO_HANDLERS = Collections.emptyList();
+
+   @Test
+   public void assertOldestSummariesAreOverwritten()
+   {
+      final ExceptionRecorder recorder = new ExceptionRecorder(3, 8, NO_HANDLERS);
+      assertEquals(4, recorder.getCapacity());
+
+      for (int i = 0; i < 10; i++)
+      {
+         dispatch(recorder, new IllegalStateException("dispatch " + i), NO_QUALIFIERS);
+      }
+
+      final List<ExceptionSummary> summaries = recorder.snapshot();
+      assertEquals(10, recorder.getRecordedCount());
+      assertEquals(4, summaries.size());
+      for (int i = 0; i < summaries.size(); i++)
+      {
+         assertEquals(6 + i, summaries.get(i).getSequence());
+         assertEquals("dispatch " + (6 + i), summaries.get(i).getMessage());
+      }
+
+      recorder.clear();
+      assertEquals(0, recorder.snapshot().size());
+      assertEquals(0, recorder.getRecordedCount());
+   }
+
+   @Test
+   public void assertSummaryIsBounded()
+   {
+      final ExceptionRecorder recorder = new ExceptionRecorder(1, 2, NO_HANDLERS);
+      final StringBuilder longMessage = new StringBuilder();
+      for (int i = 0; i < ExceptionRecorder.MAX_MESSAGE_LENGTH * 2; i++)
+      {
+         longMessage.append('x');
+      }
+      final Set<Annotation> qualifiers = Collections.<Annotation>singleton(new AnnotationLiteral<Default>()
+      {
+      });
+
+      dispatch(recorder, new RuntimeException(longMessage.toString(), new IllegalArgumentException("root")),
+            qualifiers);
+
+      final ExceptionSummary summary = recorder.snapshot().get(0);
+      assertEquals(ExceptionRecorder.MAX_MESSAGE_LENGTH, summary.getMessage().length());
+      assertEquals("root", summary.getRootCauseMessage());
+      assertEquals(2, summary.getCauseTypes().size());
+      assertEquals(IllegalArgumentException.class.getName(), summary.getCauseTypes().get(1));
+      assertEquals(2, summary.getRootCauseFrames().size());
+      assertEquals(Collections.singletonList(Default.class.getName()), summary.getQualifiers());
+      assertEquals(DispatchOutcome.HANDLED, summary.getOutcome());
+   }
+
+   @Test
+   public void assertNestedDispatchesAreRecordedSeparately() throws Exception
+   {
+      final ExceptionRecorder recorder = new ExceptionRecorder(8, 8, NO_HANDLERS);
+      final Exception outer = new Exception("outer");
+      final Exception nested = new Exception("nested");
+
+      recorder.dispatchStarted(outer, NO_QUALIFIERS);
+      dispatch(recorder, nested, NO_QUALIFIERS);
+      recorder.dispatchEnded(outer, NO_QUALIFIERS, 1, DispatchOutcome.NOT_HANDLED, 10);
+
+      final List<ExceptionSummary> summaries = recorder.snapshot();
+      assertEquals(2, summaries.size());
+      assertEquals("nested", summaries.get(0).getMessage());
+      assertEquals("outer", summaries.get(1).getMessage());
+      assertNull(summaries.get(1).getRootCauseMessage());
+
+      final StringBuilder dump = new StringBuilder();
+      recorder.export(dump);
+      assertTrue(dump.toString().startsWith("2 of 2 dispatches recorded\n#0 "));
+      assertTrue(dump.indexOf(Exception.class.getName() + ": outer") > 0);
+   }
+
+   private static void dispatch(ExceptionRecorder recorder, Throwable exception, Set<Annotation> qualifiers)
+   {
+      recorder.dispatchStarted(exception, qualifiers);
+      recorder.dispatchEnded(exception, qualifiers, 1, DispatchOutcome.HANDLED, 100);
+   }
+}
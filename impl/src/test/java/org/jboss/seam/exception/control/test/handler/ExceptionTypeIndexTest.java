@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.handler;
+
+import java.io.Serializable;
+import java.lang.reflect.Type;
+
+import org.jboss.seam.exception.control.ExceptionTypeIndex;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ExceptionTypeIndexTest
+{
+   @Test
+   public void assertDepthIncreasesWithSpecificity()
+   {
+      final ExceptionTypeIndex index = new ExceptionTypeIndex();
+
+      assertEquals(1, index.getDepth(Throwable.class));
+      assertEquals(2, index.getDepth(Exception.class));
+      assertEquals(3, index.getDepth(RuntimeException.class));
+      assertEquals(4, index.getDepth(IllegalArgumentException.class));
+      assertEquals(5, index.getDepth(NumberFormatException.class));
+   }
+
+   @Test
+   public void assertClosureContainsSuperTypes()
+   {
+      final ExceptionTypeIndex index = new ExceptionTypeIndex();
+
+      assertTrue(index.getTypeClosure(IllegalArgumentException.class).contains((Type) Throwable.class));
+      assertTrue(index.getTypeClosure(IllegalArgumentException.class).contains((Type) Serializable.class));
+   }
+
+   @Test
+   public void assertClosureIsComputedOnce()
+   {
+      final ExceptionTypeIndex index = new ExceptionTypeIndex();
+
+      assertSame(index.getTypeClosure(IllegalStateException.class), index.getTypeClosure(IllegalStateException.class));
+   }
+}
@@ -27,7 +27,9 @@ import javax.inject.Inject;
 
 import org.jboss.arquillian.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.seam.exception.control.ExceptionHandlerComparator;
 import org.jboss.seam.exception.control.HandlerMethod;
+import org.jboss.seam.exception.control.Precedence;
 import org.jboss.seam.exception.control.TraversalMode;
 import org.jboss.seam.exception.control.extension.CatchExtension;
 import org.jboss.shrinkwrap.api.Archive;
@@ -39,6 +41,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(Arquillian.class)
 public class HandlerComparatorTest
@@ -68,4 +71,22 @@ public class HandlerComparatorTest
       assertEquals("catchRuntime", handlers.get(2).getJavaMethod().getName());
       assertEquals("catchIAE", handlers.get(3).getJavaMethod().getName());
    }
+
+   @Test
+   public void assertSortKeyOrdersTraversalModeHierarchyAndPrecedence()
+   {
+      // Breadth first before depth first, regardless of hierarchy
+      assertTrue(ExceptionHandlerComparator.createSortKey(TraversalMode.BREADTH_FIRST, 5, Precedence.DEFAULT)
+            < ExceptionHandlerComparator.createSortKey(TraversalMode.DEPTH_FIRST, 1, Precedence.DEFAULT));
+
+      // Less specific before more specific, regardless of precedence
+      assertTrue(ExceptionHandlerComparator.createSortKey(TraversalMode.DEPTH_FIRST, 1, Integer.MAX_VALUE)
+            < ExceptionHandlerComparator.createSortKey(TraversalMode.DEPTH_FIRST, 2, Integer.MIN_VALUE));
+
+      // Precedence is ascending for depth first and descending for breadth first
+      assertTrue(ExceptionHandlerComparator.createSortKey(TraversalMode.DEPTH_FIRST, 1, Precedence.LOW)
+            < ExceptionHandlerComparator.createSortKey(TraversalMode.DEPTH_FIRST, 1, Precedence.HIGH));
+      assertTrue(ExceptionHandlerComparator.createSortKey(TraversalMode.BREADTH_FIRST, 1, Precedence.HIGH)
+            < ExceptionHandlerComparator.createSortKey(TraversalMode.BREADTH_FIRST, 1, Precedence.LOW));
+   }
 }
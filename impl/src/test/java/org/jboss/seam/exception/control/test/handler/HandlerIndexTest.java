@@ -0,0 +1,230 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.handler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import javax.enterprise.inject.spi.AnnotatedMethod;
+import javax.enterprise.inject.spi.AnnotatedType;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.ProcessAnnotatedType;
+import javax.enterprise.inject.spi.ProcessBean;
+
+import org.jboss.seam.exception.control.CaughtException;
+import org.jboss.seam.exception.control.HandlerIndex;
+import org.jboss.seam.exception.control.HandlesExceptions;
+import org.jboss.seam.exception.control.TraversalMode;
+import org.jboss.seam.exception.control.extension.CatchExtension;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HandlerIndexTest
+{
+   private static final String HANDLER_TYPE = ExtensionExceptionHandler.class.getName();
+
+   private static final String INDEX = "# Handler index\n" +
+         "type\t" + HANDLER_TYPE + "\n" +
+         "type\t" + UnMuteHandler.class.getName() + "\n" +
+         "handler\t" + HANDLER_TYPE + "\tdifferentParamHandlerLocationHandler\t" +
+         "int,javax.enterprise.inject.spi.BeanManager,org.jboss.seam.exception.control.CaughtException\t2\t" +
+         "java.sql.SQLException\t0\tDEPTH_FIRST\t\n";
+
+   @Test
+   public void assertIndexedHandlerIsFound() throws IOException, NoSuchMethodException
+   {
+      final HandlerIndex index = new HandlerIndex();
+      index.read(new StringReader(INDEX));
+
+      assertTrue(index.isIndexed(HANDLER_TYPE));
+      assertEquals(1, index.getHandlers(HANDLER_TYPE).size());
+      assertEquals(TraversalMode.DEPTH_FIRST, index.getHandlers(HANDLER_TYPE).get(0).getTraversalMode());
+      assertEquals(SQLException.class.getName(), index.getHandlers(HANDLER_TYPE).get(0).getExceptionType());
+      assertTrue(index.isHandler(HANDLER_TYPE, ExtensionExceptionHandler.class.getMethod(
+            "differentParamHandlerLocationHandler", int.class, BeanManager.class, CaughtException.class)));
+      assertFalse(index.isHandler(HANDLER_TYPE, ExtensionExceptionHandler.class.getMethod(
+            "doNothingTwo", String.class, String.class, int.class)));
+   }
+
+   @Test
+   public void assertIndexedTypeWithoutHandlersHasNoHandlers() throws IOException
+   {
+      final HandlerIndex index = new HandlerIndex();
+      index.read(new StringReader(INDEX));
+
+      assertTrue(index.isIndexed(UnMuteHandler.class.getName()));
+      assertTrue(index.getHandlers(UnMuteHandler.class.getName()).isEmpty());
+      assertFalse(index.isIndexed(CalledExceptionHandler.class.getName()));
+   }
+
+   @Test
+   public void assertTypeListedWithoutHandlersIsInspectedIfAnnotatedByExtension() throws IOException
+   {
+      final CatchExtension extension = createExtension();
+      final int[] inspections = new int[1];
+      final AnnotatedType<?> type = createAnnotatedType(UnMuteHandler.class, true, inspections);
+
+      extension.findHandlerTypes(createEvent(ProcessAnnotatedType.class, type), null);
+      extension.findHandlers(createEvent(ProcessBean.class, type));
+      extension.registerHandlers(null, null);
+
+      assertEquals(1, inspections[0]);
+   }
+
+   @Test
+   public void assertTypeWithoutHandlesExceptionsIsIgnored() throws IOException
+   {
+      final CatchExtension extension = createExtension();
+      final int[] inspections = new int[1];
+      final AnnotatedType<?> type = createAnnotatedType(UnMuteHandler.class, false, inspections);
+
+      extension.findHandlerTypes(createEvent(ProcessAnnotatedType.class, type), null);
+      extension.findHandlers(createEvent(ProcessBean.class, type));
+      extension.registerHandlers(null, null);
+
+      assertEquals(0, inspections[0]);
+   }
+
+   @Test
+   public void assertMalformedIndexIsNotAdded() throws IOException
+   {
+      final HandlerIndex index = new HandlerIndex();
+      try
+      {
+         index.read(new StringReader(INDEX + "handler\t" + HANDLER_TYPE + "\tbroken\n"));
+      }
+      catch (IllegalArgumentException e)
+      {
+         assertFalse(index.isIndexed(HANDLER_TYPE));
+         return;
+      }
+      throw new AssertionError("Malformed index was read");
+   }
+
+   /**
+    * Creates an extension which loads {@link #INDEX}, listing {@link UnMuteHandler} without handlers.
+    */
+   private static CatchExtension createExtension() throws IOException
+   {
+      final File root = File.createTempFile("handler-index", "");
+      root.delete();
+      final File index = new File(root, HandlerIndex.INDEX_RESOURCE);
+      index.getParentFile().mkdirs();
+      final OutputStream out = new FileOutputStream(index);
+      try
+      {
+         out.write(INDEX.getBytes("UTF-8"));
+      }
+      finally
+      {
+         out.close();
+      }
+
+      final CatchExtension extension = new CatchExtension();
+      final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+      Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[]{root.toURI().toURL()}, null));
+      try
+      {
+         extension.loadHandlerIndex(null);
+      }
+      finally
+      {
+         Thread.currentThread().setContextClassLoader(contextClassLoader);
+         index.delete();
+         index.getParentFile().delete();
+         root.delete();
+      }
+      return extension;
+   }
+
+   /**
+    * Creates an annotated type, as a portable extension may have altered it, with a single method which counts how
+    * often its parameters are inspected for a handler.
+    */
+   private static AnnotatedType<?> createAnnotatedType(final Class<?> javaClass, final boolean handlesExceptions,
+                                                       final int[] inspections)
+   {
+      final AnnotatedMethod<?> method = stub(AnnotatedMethod.class, new InvocationHandler()
+      {
+         public Object invoke(Object proxy, Method method, Object[] args)
+         {
+            if ("getParameters".equals(method.getName()))
+            {
+               inspections[0]++;
+               return Collections.emptyList();
+            }
+            return null;
+         }
+      });
+
+      return stub(AnnotatedType.class, new InvocationHandler()
+      {
+         public Object invoke(Object proxy, Method invoked, Object[] args)
+         {
+            if ("getJavaClass".equals(invoked.getName()))
+            {
+               return javaClass;
+            }
+            if ("isAnnotationPresent".equals(invoked.getName()))
+            {
+               return handlesExceptions && args[0] == HandlesExceptions.class;
+            }
+            if ("getAnnotations".equals(invoked.getName()))
+            {
+               return Collections.emptySet();
+            }
+            if ("getMethods".equals(invoked.getName()))
+            {
+               return Collections.singleton(method);
+            }
+            return null;
+         }
+      });
+   }
+
+   private static <T> T createEvent(final Class<T> eventType, final AnnotatedType<?> type)
+   {
+      return stub(eventType, new InvocationHandler()
+      {
+         public Object invoke(Object proxy, Method method, Object[] args)
+         {
+            return "getAnnotatedType".equals(method.getName()) || "getAnnotated".equals(method.getName()) ?
+                  type : null;
+         }
+      });
+   }
+
+   private static <T> T stub(Class<T> type, InvocationHandler handler)
+   {
+      return type.cast(Proxy.newProxyInstance(HandlerIndexTest.class.getClassLoader(), new Class<?>[]{type},
+            handler));
+   }
+}
@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.handler;
+
+import org.jboss.seam.exception.control.LatencyHistogram;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest
+{
+   @Test
+   public void assertSmallValuesAreExact()
+   {
+      final LatencyHistogram histogram = new LatencyHistogram();
+      for (long v = 0; v < 8; v++)
+      {
+         histogram.record(v);
+      }
+
+      assertEquals(8, histogram.getCount());
+      assertEquals(28, histogram.getTotal());
+      assertEquals(7, histogram.getMax());
+      assertEquals(3, histogram.getValueAtPercentile(50));
+      assertEquals(7, histogram.getValueAtPercentile(100));
+   }
+
+   @Test
+   public void assertPercentilesAreWithinBucketPrecision()
+   {
+      final LatencyHistogram histogram = new LatencyHistogram();
+      for (long v = 1; v <= 100000; v++)
+      {
+         histogram.record(v * 1000);
+      }
+
+      assertPrecision(50000000, histogram.getValueAtPercentile(50));
+      assertPrecision(99000000, histogram.getValueAtPercentile(99));
+      assertEquals(100000000, histogram.getValueAtPercentile(100));
+      assertEquals(50000500, histogram.getMean(), 1);
+   }
+
+   @Test
+   public void assertHugeValuesAreCappedButMaxIsExact()
+   {
+      final LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(Long.MAX_VALUE / 2);
+      histogram.record(-5);
+
+      assertEquals(Long.MAX_VALUE / 2, histogram.getMax());
+      assertEquals(0, histogram.getValueAtPercentile(50));
+      assertEquals(Long.MAX_VALUE / 2, histogram.getValueAtPercentile(100));
+
+      histogram.reset();
+      assertEquals(0, histogram.getCount());
+      assertEquals(0, histogram.getValueAtPercentile(99));
+   }
+
+   private static void assertPrecision(long expected, long actual)
+   {
+      assertTrue(actual + " is below " + expected, actual >= expected);
+      assertTrue(actual + " is too far above " + expected, actual <= expected + expected / 8);
+   }
+}
@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.handler;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jboss.seam.exception.control.QualifierIndex;
+import org.jboss.seam.exception.control.test.extension.literal.ArquillianLiteral;
+import org.jboss.seam.exception.control.test.extension.literal.CatchQualifierLiteral;
+import org.jboss.seam.solder.literal.AnyLiteral;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QualifierIndexTest
+{
+   @Test
+   public void assertAnyHandlerMatchesAllQualifiers()
+   {
+      final QualifierIndex index = new QualifierIndex();
+      final long handlerMask = index.register(Collections.<Annotation>singleton(AnyLiteral.INSTANCE));
+
+      assertEquals(QualifierIndex.ANY_MASK, handlerMask);
+      assertTrue(QualifierIndex.matches(handlerMask, 0));
+      assertTrue(QualifierIndex.matches(handlerMask,
+            index.getMask(Collections.<Annotation>singleton(CatchQualifierLiteral.INSTANCE))));
+   }
+
+   @Test
+   public void assertQualifiedHandlerMatchesCommonQualifier()
+   {
+      final QualifierIndex index = new QualifierIndex();
+      final long handlerMask = index.register(Collections.<Annotation>singleton(CatchQualifierLiteral.INSTANCE));
+      index.register(Collections.<Annotation>singleton(ArquillianLiteral.INSTANCE));
+
+      assertTrue(QualifierIndex.matches(handlerMask, index.getMask(
+            Arrays.<Annotation>asList(CatchQualifierLiteral.INSTANCE, ArquillianLiteral.INSTANCE))));
+      assertFalse(QualifierIndex.matches(handlerMask,
+            index.getMask(Collections.<Annotation>singleton(ArquillianLiteral.INSTANCE))));
+      assertFalse(QualifierIndex.matches(handlerMask,
+            index.getMask(Collections.<Annotation>singleton(AnyLiteral.INSTANCE))));
+   }
+
+   @Test
+   public void assertUnregisteredQualifiersAreIgnored()
+   {
+      final QualifierIndex index = new QualifierIndex();
+
+      assertEquals(0, index.getMask(Collections.<Annotation>singleton(CatchQualifierLiteral.INSTANCE)));
+   }
+}
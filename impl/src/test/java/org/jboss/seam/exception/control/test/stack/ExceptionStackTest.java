@@ -29,6 +29,8 @@ import org.jboss.seam.exception.control.ExceptionStack;
 import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.matchers.JUnitMatchers.hasItems;
 
@@ -49,4 +51,37 @@ public class ExceptionStackTest
       assertThat(es.getCauseElements().size(), is(4));
       assertThat(es.getCauseElements(), hasItems(e, transactionRollbackException, recoverableException, syntaxErrorException));
    }
+
+   @Test
+   public void testNavigationOverSQLExceptionChain()
+   {
+      SQLTransactionRollbackException transactionRollbackException = new SQLTransactionRollbackException();
+      SQLRecoverableException recoverableException = new SQLRecoverableException();
+      SQLSyntaxErrorException syntaxErrorException = new SQLSyntaxErrorException();
+      recoverableException.setNextException(syntaxErrorException);
+      transactionRollbackException.setNextException(recoverableException);
+      Throwable e = new Exception(transactionRollbackException);
+
+      ExceptionStack es = new ExceptionStack(e);
+
+      assertThat(es.isRoot(), is(true));
+      assertThat(es.getCurrent(), sameInstance((Throwable) syntaxErrorException));
+      assertThat(es.getNext(), sameInstance((Throwable) recoverableException));
+      assertThat(es.getRemaining().size(), is(3));
+
+      es.setIndex(1);
+
+      assertThat(es.isRoot(), is(false));
+      assertThat(es.isLast(), is(false));
+      assertThat(es.getCurrent(), sameInstance((Throwable) transactionRollbackException));
+      assertThat(es.getRemaining().size(), is(1));
+      assertThat(es.getRemaining(), hasItems(e));
+
+      es.setIndex(0);
+
+      assertThat(es.isLast(), is(true));
+      assertThat(es.getNext(), nullValue());
+      assertThat(es.getRemaining().isEmpty(), is(true));
+      assertThat(es.getCauseElements().size(), is(4));
+   }
 }
@@ -44,6 +44,7 @@ import org.junit.runner.RunWith;
 
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.matchers.JUnitMatchers.hasItem;
 
 @RunWith(Arquillian.class)
@@ -74,6 +75,12 @@ public class ModifyExceptionStackTest
       event.fire(new ExceptionToCatch(this.startException));
    }
 
+   @Test
+   public void assertStackObserverIsDetected(CatchExtension extension)
+   {
+      assertTrue(extension.isExceptionStackObserved());
+   }
+
    public void changeStackObserver(@Observes ExceptionStack stack)
    {
       ArrayList<Throwable> causes = new ArrayList<Throwable>(stack.getCauseElements());
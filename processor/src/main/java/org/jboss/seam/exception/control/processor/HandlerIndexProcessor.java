@@ -0,0 +1,352 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor generating the handler index of a module, which allows Seam Catch to find handlers without
+ * inspecting every bean of the module at boot.  The index lists every type compiled in the module, and for types
+ * annotated with {@code @HandlesExceptions}, directly or through a stereotype, all handler methods.  A bean type
+ * missing from every index is inspected as before.
+ * <p/>
+ * The index is written to {@value #INDEX_RESOURCE}, one tab separated record per line:
+ * <pre>
+ * type     &lt;type&gt;
+ * handler  &lt;type&gt; &lt;method&gt; &lt;parameter types&gt; &lt;handles parameter position&gt;
+ *          &lt;exception type&gt; &lt;precedence&gt; &lt;traversal mode&gt; &lt;qualifier types&gt;
+ * </pre>
+ * Types are given as returned by {@link Class#getName()}, lists of types are comma separated.
+ * <p/>
+ * Types compiled in separate compiler runs, as done by incremental builds, are not all listed in the index.  Only the
+ * last run writes the index, types missing from it are inspected at boot.
+ */
+@SupportedAnnotationTypes("*")
+public class HandlerIndexProcessor extends AbstractProcessor
+{
+   /**
+    * Location of the handler index within a module.
+    */
+   public static final String INDEX_RESOURCE = "META-INF/org.jboss.seam.exception.control.handlers";
+
+   private static final String HANDLES_EXCEPTIONS = "org.jboss.seam.exception.control.HandlesExceptions";
+   private static final String HANDLES = "org.jboss.seam.exception.control.Handles";
+   private static final String QUALIFIER = "javax.inject.Qualifier";
+   private static final String STEREOTYPE = "javax.enterprise.inject.Stereotype";
+
+   private final Set<String> types = new TreeSet<String>();
+   private final List<String> handlers = new ArrayList<String>();
+
+   @Override
+   public SourceVersion getSupportedSourceVersion()
+   {
+      return SourceVersion.latestSupported();
+   }
+
+   @Override
+   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+   {
+      if (roundEnv.processingOver())
+      {
+         this.writeIndex();
+      }
+      else
+      {
+         for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements()))
+         {
+            this.indexType(type);
+         }
+      }
+
+      // Other processors may need the same annotations
+      return false;
+   }
+
+   private void indexType(TypeElement type)
+   {
+      final String typeName = this.getName(type);
+
+      this.types.add(typeName);
+
+      if (type.getKind().isClass() && this.isHandlerType(type, new HashSet<Element>()))
+      {
+         for (ExecutableElement method : ElementFilter.methodsIn(this.processingEnv.getElementUtils()
+               .getAllMembers(type)))
+         {
+            this.indexMethod(typeName, method);
+         }
+      }
+
+      for (TypeElement memberType : ElementFilter.typesIn(type.getEnclosedElements()))
+      {
+         this.indexType(memberType);
+      }
+   }
+
+   /**
+    * Determines if the given element is annotated with {@code @HandlesExceptions}, directly or through stereotypes
+    * which are themselves annotated with it, the same way the runtime does.  Other annotations carrying {@code
+    * @HandlesExceptions} do not make a handler type.
+    */
+   private boolean isHandlerType(Element element, Set<Element> visited)
+   {
+      for (AnnotationMirror annotation : element.getAnnotationMirrors())
+      {
+         final Element annotationType = annotation.getAnnotationType().asElement();
+
+         if (HANDLES_EXCEPTIONS.equals(this.getName((TypeElement) annotationType)))
+         {
+            return true;
+         }
+         if (visited.add(annotationType) && this.findAnnotation(annotationType, STEREOTYPE) != null
+               && this.isHandlerType(annotationType, visited))
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private void indexMethod(String typeName, ExecutableElement method)
+   {
+      if (method.getModifiers().contains(Modifier.STATIC))
+      {
+         return;
+      }
+
+      final List<? extends VariableElement> parameters = method.getParameters();
+
+      for (int i = 0; i < parameters.size(); i++)
+      {
+         final AnnotationMirror handles = this.findAnnotation(parameters.get(i), HANDLES);
+
+         if (handles != null)
+         {
+            final StringBuilder record = new StringBuilder("handler\t");
+            record.append(typeName).append('\t');
+            record.append(method.getSimpleName()).append('\t');
+            record.append(this.getParameterTypes(parameters)).append('\t');
+            record.append(i).append('\t');
+            record.append(this.getExceptionType(parameters.get(i))).append('\t');
+            record.append(this.getValue(handles, "precedence")).append('\t');
+            record.append(this.getValue(handles, "during")).append('\t');
+            record.append(this.getQualifierTypes(parameters.get(i)));
+
+            this.handlers.add(record.toString());
+            return;
+         }
+      }
+   }
+
+   private AnnotationMirror findAnnotation(Element element, String annotationTypeName)
+   {
+      for (AnnotationMirror annotation : element.getAnnotationMirrors())
+      {
+         if (annotationTypeName.equals(this.getName((TypeElement) annotation.getAnnotationType().asElement())))
+         {
+            return annotation;
+         }
+      }
+      return null;
+   }
+
+   private String getValue(AnnotationMirror annotation, String name)
+   {
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+            this.processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).entrySet())
+      {
+         if (entry.getKey().getSimpleName().contentEquals(name))
+         {
+            final Object value = entry.getValue().getValue();
+            return value instanceof VariableElement ? ((VariableElement) value).getSimpleName().toString() :
+                  String.valueOf(value);
+         }
+      }
+      throw new IllegalArgumentException(String.format("No value %s in annotation %s", name, annotation));
+   }
+
+   private String getParameterTypes(List<? extends VariableElement> parameters)
+   {
+      final StringBuilder parameterTypes = new StringBuilder();
+
+      for (VariableElement parameter : parameters)
+      {
+         if (parameterTypes.length() > 0)
+         {
+            parameterTypes.append(',');
+         }
+         parameterTypes.append(this.getName(parameter.asType()));
+      }
+      return parameterTypes.toString();
+   }
+
+   /**
+    * Obtains the type argument of the {@code CaughtException} parameter, or {@code java.lang.Throwable} if it is a raw
+    * type.
+    */
+   private String getExceptionType(VariableElement parameter)
+   {
+      final TypeMirror parameterType = parameter.asType();
+
+      if (parameterType.getKind() == TypeKind.DECLARED)
+      {
+         final List<? extends TypeMirror> typeArguments = ((DeclaredType) parameterType).getTypeArguments();
+
+         if (typeArguments.size() == 1)
+         {
+            return this.getName(typeArguments.get(0));
+         }
+      }
+      return Throwable.class.getName();
+   }
+
+   private String getQualifierTypes(VariableElement parameter)
+   {
+      final StringBuilder qualifierTypes = new StringBuilder();
+
+      for (AnnotationMirror annotation : parameter.getAnnotationMirrors())
+      {
+         final TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+
+         if (this.findAnnotation(annotationType, QUALIFIER) != null)
+         {
+            if (qualifierTypes.length() > 0)
+            {
+               qualifierTypes.append(',');
+            }
+            qualifierTypes.append(this.getName(annotationType));
+         }
+      }
+      return qualifierTypes.toString();
+   }
+
+   private String getName(TypeElement type)
+   {
+      return this.processingEnv.getElementUtils().getBinaryName(type).toString();
+   }
+
+   /**
+    * Obtains the name of the erasure of the given type, as returned by {@link Class#getName()}.
+    */
+   private String getName(TypeMirror type)
+   {
+      final TypeMirror erasure = this.processingEnv.getTypeUtils().erasure(type);
+
+      switch (erasure.getKind())
+      {
+         case DECLARED:
+            return this.getName((TypeElement) ((DeclaredType) erasure).asElement());
+         case ARRAY:
+            return this.getDescriptor(erasure).replace('/', '.');
+         default:
+            return erasure.toString();
+      }
+   }
+
+   private String getDescriptor(TypeMirror type)
+   {
+      switch (type.getKind())
+      {
+         case ARRAY:
+            return "[" + this.getDescriptor(((ArrayType) type).getComponentType());
+         case DECLARED:
+            return "L" + this.getName((TypeElement) ((DeclaredType) type).asElement()) + ";";
+         case BOOLEAN:
+            return "Z";
+         case BYTE:
+            return "B";
+         case CHAR:
+            return "C";
+         case SHORT:
+            return "S";
+         case INT:
+            return "I";
+         case LONG:
+            return "J";
+         case FLOAT:
+            return "F";
+         case DOUBLE:
+            return "D";
+         default:
+            return type.toString();
+      }
+   }
+
+   private void writeIndex()
+   {
+      if (this.types.isEmpty())
+      {
+         return;
+      }
+
+      try
+      {
+         final FileObject index = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+               INDEX_RESOURCE);
+         final Writer writer = index.openWriter();
+         try
+         {
+            writer.write("# Generated by " + HandlerIndexProcessor.class.getName() + ", do not edit\n");
+            for (String type : this.types)
+            {
+               writer.write("type\t" + type + "\n");
+            }
+            for (String handler : this.handlers)
+            {
+               writer.write(handler + "\n");
+            }
+         }
+         finally
+         {
+            writer.close();
+         }
+      }
+      catch (IOException e)
+      {
+         this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+               "Could not write handler index: " + e.getMessage());
+      }
+   }
+}
@@ -0,0 +1,209 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2011, Red Hat, Inc., and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.seam.exception.control.test.processor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.jboss.seam.exception.control.processor.HandlerIndexProcessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HandlerIndexProcessorTest
+{
+   private static final String HANDLER_SOURCE =
+         "package test;\n" +
+               "import org.jboss.seam.exception.control.*;\n" +
+               "@HandlesExceptions\n" +
+               "public class SampleHandler {\n" +
+               "   public void handle(@Handles(precedence = 10) CaughtException<IllegalStateException> e) {}\n" +
+               "   public void inbound(int i,\n" +
+               "         @Handles(during = TraversalMode.BREADTH_FIRST) CaughtException<Exception> e) {}\n" +
+               "   public void notAHandler(CaughtException<Exception> e) {}\n" +
+               "   public static class Nested {}\n" +
+               "}\n";
+
+   private static final String PLAIN_SOURCE =
+         "package test;\n" +
+               "public class PlainBean {\n" +
+               "   public void handle(org.jboss.seam.exception.control.CaughtException<Exception> e) {}\n" +
+               "}\n";
+
+   private static final String STEREOTYPE_SOURCE =
+         "package test;\n" +
+               "@org.jboss.seam.exception.control.HandlesExceptions\n" +
+               "@javax.enterprise.inject.Stereotype\n" +
+               "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+               "public @interface HandlerStereotype {}\n";
+
+   private static final String META_ANNOTATION_SOURCE =
+         "package test;\n" +
+               "@org.jboss.seam.exception.control.HandlesExceptions\n" +
+               "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+               "public @interface NotAStereotype {}\n";
+
+   private static final String STEREOTYPED_SOURCE =
+         "package test;\n" +
+               "@HandlerStereotype\n" +
+               "public class StereotypedHandler {\n" +
+               "   public void handle(@org.jboss.seam.exception.control.Handles\n" +
+               "         org.jboss.seam.exception.control.CaughtException<Exception> e) {}\n" +
+               "}\n";
+
+   private static final String META_ANNOTATED_SOURCE =
+         "package test;\n" +
+               "@NotAStereotype\n" +
+               "public class MetaAnnotatedBean {\n" +
+               "   public void handle(@org.jboss.seam.exception.control.Handles\n" +
+               "         org.jboss.seam.exception.control.CaughtException<Exception> e) {}\n" +
+               "}\n";
+
+   private File output;
+
+   private List<String> index;
+
+   @Before
+   public void compile() throws IOException
+   {
+      output = File.createTempFile("handler-index", "");
+      assertTrue(output.delete() && output.mkdir());
+
+      final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      final List<String> options = Arrays.asList("-d", output.getPath(), "-classpath",
+            System.getProperty("java.class.path"), "-processor", HandlerIndexProcessor.class.getName());
+
+      assertTrue(compiler.getTask(null, null, null, options, null, Arrays.asList(
+            new Source("test/SampleHandler", HANDLER_SOURCE), new Source("test/PlainBean", PLAIN_SOURCE),
+            new Source("test/HandlerStereotype", STEREOTYPE_SOURCE),
+            new Source("test/NotAStereotype", META_ANNOTATION_SOURCE),
+            new Source("test/StereotypedHandler", STEREOTYPED_SOURCE),
+            new Source("test/MetaAnnotatedBean", META_ANNOTATED_SOURCE))).call());
+
+      this.index = new ArrayList<String>();
+      final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(
+            new File(output, HandlerIndexProcessor.INDEX_RESOURCE)), "UTF-8"));
+      try
+      {
+         String line;
+         while ((line = reader.readLine()) != null)
+         {
+            this.index.add(line);
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+   @After
+   public void deleteOutput()
+   {
+      delete(output);
+   }
+
+   @Test
+   public void assertAllTypesAreListed()
+   {
+      assertTrue(index.contains("type\ttest.SampleHandler"));
+      assertTrue(index.contains("type\ttest.SampleHandler$Nested"));
+      assertTrue(index.contains("type\ttest.PlainBean"));
+   }
+
+   @Test
+   public void assertHandlersAreListed()
+   {
+      assertTrue(index.contains("handler\ttest.SampleHandler\thandle\t" +
+            "org.jboss.seam.exception.control.CaughtException\t0\tjava.lang.IllegalStateException\t10\tDEPTH_FIRST\t"));
+      assertTrue(index.contains("handler\ttest.SampleHandler\tinbound\t" +
+            "int,org.jboss.seam.exception.control.CaughtException\t1\tjava.lang.Exception\t0\tBREADTH_FIRST\t"));
+   }
+
+   @Test
+   public void assertMethodsWithoutHandlesAreNotListed()
+   {
+      for (String record : index)
+      {
+         assertFalse(record, record.contains("notAHandler"));
+         assertFalse(record, record.startsWith("handler\ttest.PlainBean"));
+      }
+   }
+
+   @Test
+   public void assertStereotypedHandlersAreListed()
+   {
+      assertTrue(index.contains("handler\ttest.StereotypedHandler\thandle\t" +
+            "org.jboss.seam.exception.control.CaughtException\t0\tjava.lang.Exception\t0\tDEPTH_FIRST\t"));
+   }
+
+   @Test
+   public void assertMetaAnnotationsWhichAreNotStereotypesAreIgnored()
+   {
+      assertTrue(index.contains("type\ttest.MetaAnnotatedBean"));
+      for (String record : index)
+      {
+         assertFalse(record, record.startsWith("handler\ttest.MetaAnnotatedBean"));
+      }
+   }
+
+   private static void delete(File file)
+   {
+      final File[] children = file.listFiles();
+      if (children != null)
+      {
+         for (File child : children)
+         {
+            delete(child);
+         }
+      }
+      assertTrue(file.getPath(), file.delete());
+   }
+
+   private static final class Source extends SimpleJavaFileObject
+   {
+      private final String content;
+
+      Source(String name, String content)
+      {
+         super(URI.create("string:///" + name + Kind.SOURCE.extension), Kind.SOURCE);
+         this.content = content;
+      }
+
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors)
+      {
+         return this.content;
+      }
+   }
+}